@@ -21,17 +21,32 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.Options;
+import org.json.JSONObject;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 
 import edu.uco.cs.v2c.dashboard.backend.log.Logger;
 import edu.uco.cs.v2c.dashboard.backend.net.APIDriver;
+import edu.uco.cs.v2c.dashboard.backend.net.TunedServerFactory;
 import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthTokenManager;
+import edu.uco.cs.v2c.dashboard.backend.net.auth.MemorySessionBackend;
+import edu.uco.cs.v2c.dashboard.backend.net.auth.MongoSessionBackend;
+import edu.uco.cs.v2c.dashboard.backend.net.auth.SessionBackend;
+import edu.uco.cs.v2c.dashboard.backend.persistent.ConfigFormat;
 import edu.uco.cs.v2c.dashboard.backend.persistent.Database;
+import edu.uco.cs.v2c.dashboard.backend.persistent.PasswordHasher;
 
 /**
  * V2C Dispatcher.
@@ -46,16 +61,69 @@ public class V2CDashboardBackend {
   private static final int DEFAULT_PORT = 2586;
   private static final String DEFAULT_DATABASE = "127.0.0.1:27017";
   private static final String DEFAULT_PSK = "484dd6d1-9262-4975-a707-4238e08ed266";
+  private static final String DEFAULT_WRITE_CONCERN = "acknowledged";
+  private static final int DEFAULT_CONFIG_CACHE_SIZE = 1000;
+  private static final long DEFAULT_CONFIG_CACHE_TTL = 60;
+  private static final ConfigFormat DEFAULT_CONFIG_FORMAT = ConfigFormat.DOCUMENT;
+  private static final String DEFAULT_CONFIG_READ_PREFERENCE = "primary";
+  private static final int DEFAULT_USER_CACHE_SIZE = 1000;
+  private static final long DEFAULT_USER_CACHE_TTL = 60;
+  private static final int DEFAULT_COOKIE_CACHE_SIZE = 10000;
+  private static final int DEFAULT_LOGIN_RATE_ACCOUNT = 5;
+  private static final int DEFAULT_LOGIN_RATE_IP = 20;
+  private static final int DEFAULT_HASHER_QUEUE_SIZE = 32;
+  private static final int DEFAULT_MAX_SESSIONS = 100000;
+  private static final int DEFAULT_HASHER_THREADS = Runtime.getRuntime().availableProcessors();
+  private static final int DEFAULT_SCRYPT_N = 16;
+  private static final String DEFAULT_SESSION_STORE = "memory";
+  private static final int DEFAULT_SCRYPT_P = 16;
+  private static final int DEFAULT_SCRYPT_R = 16;
+  private static final int DEFAULT_ACCEPT_QUEUE_SIZE = 0;
+  private static final long DEFAULT_CONNECTION_IDLE_TIMEOUT = 0L;
+  private static final int DEFAULT_MAX_THREADS = 200;
+  private static final int DEFAULT_MIN_THREADS = 8;
+  private static final int DEFAULT_THREAD_IDLE_TIMEOUT = 60;
+  private static final String ACCEPT_QUEUE_SIZE_PARAM_LONG = "accept-queue-size";
+  private static final String CONFIG_CACHE_SIZE_PARAM_LONG = "config-cache-size";
+  private static final String CONFIG_CACHE_TTL_PARAM_LONG = "config-cache-ttl";
+  private static final String CONFIG_FORMAT_PARAM_LONG = "config-format";
+  private static final String CONFIG_MAX_STALENESS_PARAM_LONG = "config-max-staleness";
+  private static final String CONFIG_READ_PREFERENCE_PARAM_LONG = "config-read-preference";
+  private static final String CONNECTION_IDLE_TIMEOUT_PARAM_LONG = "connection-idle-timeout";
+  private static final String COOKIE_CACHE_SIZE_PARAM_LONG = "cookie-cache-size";
   private static final String DB_PARAM_LONG = "database";
   private static final String DB_PARAM_SHORT = "d";
+  private static final String DB_SETTINGS_PARAM_LONG = "database-settings";
+  private static final String HASHER_QUEUE_SIZE_PARAM_LONG = "hasher-queue-size";
+  private static final String HASHER_THREADS_PARAM_LONG = "hasher-threads";
+  private static final String LOGIN_RATE_ACCOUNT_PARAM_LONG = "login-rate-account";
+  private static final String LOGIN_RATE_IP_PARAM_LONG = "login-rate-ip";
+  private static final String MAX_SESSIONS_PARAM_LONG = "max-sessions";
+  private static final String MAX_THREADS_PARAM_LONG = "max-threads";
+  private static final String MIN_THREADS_PARAM_LONG = "min-threads";
   private static final String PORT_PARAM_LONG = "port";
   private static final String PORT_PARAM_SHORT = "p";
   private static final String PSK_PARAM_LONG = "preshared-key";
   private static final String PSK_PARAM_SHORT = "k";
+  private static final String RESUME_TOKEN_PARAM_LONG = "resume-token-file";
+  private static final String SCRYPT_CALIBRATE_PARAM_LONG = "scrypt-calibrate";
+  private static final String SCRYPT_N_PARAM_LONG = "scrypt-n";
+  private static final String SCRYPT_P_PARAM_LONG = "scrypt-p";
+  private static final String SCRYPT_R_PARAM_LONG = "scrypt-r";
+  private static final String SESSION_STORE_PARAM_LONG = "session-store";
+  private static final String STATELESS_PARAM_LONG = "stateless-sessions";
+  private static final String THREAD_IDLE_TIMEOUT_PARAM_LONG = "thread-idle-timeout";
+  private static final String USER_CACHE_SIZE_PARAM_LONG = "user-cache-size";
+  private static final String USER_CACHE_TTL_PARAM_LONG = "user-cache-ttl";
+  private static final String VIRTUAL_THREADS_PARAM_LONG = "virtual-threads";
+  private static final String WATCH_PARAM_LONG = "watch-changes";
+  private static final String WATCH_PARAM_SHORT = "w";
+  private static final String WRITE_CONCERN_PARAM_LONG = "write-concern";
 
   private static APIDriver aPIDriver = null; // the front end
   private static AuthTokenManager authTokenManager = null; // the auth token manager
   private static Database database = null; // the database
+  private static PasswordHasher passwordHasher = null; // the password hasher
   
   /**
    * Entry point.
@@ -66,11 +134,72 @@ public class V2CDashboardBackend {
     try {
       Options options = new Options();
       options.addOption(DB_PARAM_SHORT, DB_PARAM_LONG, true,
-          "Specifies the target database server. Default = " + DEFAULT_DATABASE);
+          "Specifies the target database server, either as host:port or as a connection string. Default = "
+              + DEFAULT_DATABASE);
+      options.addOption(null, DB_SETTINGS_PARAM_LONG, true,
+          "Specifies a JSON file of connection string options to apply to the database connection.");
       options.addOption(PORT_PARAM_SHORT, PORT_PARAM_LONG, true,
           "Specifies the server's listening port. Default = " + DEFAULT_PORT);
       options.addOption(PSK_PARAM_SHORT, PSK_PARAM_LONG, true,
           "Specifies the preshared key for authentication. Default = " + DEFAULT_PSK);
+      options.addOption(null, CONFIG_CACHE_SIZE_PARAM_LONG, true,
+          "Specifies the maximum number of configs cached in memory. Default = " + DEFAULT_CONFIG_CACHE_SIZE);
+      options.addOption(null, CONFIG_CACHE_TTL_PARAM_LONG, true,
+          "Specifies the number of seconds a cached config remains valid. Default = " + DEFAULT_CONFIG_CACHE_TTL);
+      options.addOption(null, USER_CACHE_SIZE_PARAM_LONG, true,
+          "Specifies the maximum number of user profiles cached in memory. Default = " + DEFAULT_USER_CACHE_SIZE);
+      options.addOption(null, USER_CACHE_TTL_PARAM_LONG, true,
+          "Specifies the number of seconds a cached user profile remains valid. Default = " + DEFAULT_USER_CACHE_TTL);
+      options.addOption(null, CONFIG_FORMAT_PARAM_LONG, true,
+          "Specifies whether configs are stored as documents or strings. Default = "
+              + DEFAULT_CONFIG_FORMAT.name().toLowerCase());
+      options.addOption(null, CONFIG_READ_PREFERENCE_PARAM_LONG, true,
+          "Specifies which replica set members configs are read from. Default = " + DEFAULT_CONFIG_READ_PREFERENCE);
+      options.addOption(null, CONFIG_MAX_STALENESS_PARAM_LONG, true,
+          "Specifies the number of seconds a secondary may lag and still serve configs. "
+              + "Required unless configs are read from the primary.");
+      options.addOption(WATCH_PARAM_SHORT, WATCH_PARAM_LONG, false,
+          "Watches the database for changes made by other nodes. Requires a replica set.");
+      options.addOption(null, RESUME_TOKEN_PARAM_LONG, true,
+          "Specifies the file in which the change stream's resume token is kept.");
+      options.addOption(null, WRITE_CONCERN_PARAM_LONG, true,
+          "Specifies the write concern, by name or by number of nodes. Default = " + DEFAULT_WRITE_CONCERN);
+      options.addOption(null, HASHER_THREADS_PARAM_LONG, true,
+          "Specifies the number of passwords that can be hashed at once. Default = " + DEFAULT_HASHER_THREADS);
+      options.addOption(null, HASHER_QUEUE_SIZE_PARAM_LONG, true,
+          "Specifies the number of passwords that can wait to be hashed. Default = " + DEFAULT_HASHER_QUEUE_SIZE);
+      options.addOption(null, MAX_SESSIONS_PARAM_LONG, true,
+          "Specifies the maximum number of sessions kept at once. Default = " + DEFAULT_MAX_SESSIONS);
+      options.addOption(null, SESSION_STORE_PARAM_LONG, true,
+          "Specifies where sessions are kept, either memory or mongo. Default = " + DEFAULT_SESSION_STORE);
+      options.addOption(null, STATELESS_PARAM_LONG, false,
+          "Carries sessions entirely in short-lived, self-renewing cookies instead of keeping them on the server.");
+      options.addOption(null, COOKIE_CACHE_SIZE_PARAM_LONG, true,
+          "Specifies the maximum number of verified session cookies cached in memory. Default = " + DEFAULT_COOKIE_CACHE_SIZE);
+      options.addOption(null, LOGIN_RATE_IP_PARAM_LONG, true,
+          "Specifies the number of login attempts allowed per minute from one IP address. Default = " + DEFAULT_LOGIN_RATE_IP);
+      options.addOption(null, LOGIN_RATE_ACCOUNT_PARAM_LONG, true,
+          "Specifies the number of login attempts allowed per minute for one account. Default = " + DEFAULT_LOGIN_RATE_ACCOUNT);
+      options.addOption(null, SCRYPT_N_PARAM_LONG, true,
+          "Specifies the scrypt CPU cost, which must be a power of two. Default = " + DEFAULT_SCRYPT_N);
+      options.addOption(null, SCRYPT_R_PARAM_LONG, true,
+          "Specifies the scrypt memory cost. Default = " + DEFAULT_SCRYPT_R);
+      options.addOption(null, SCRYPT_P_PARAM_LONG, true,
+          "Specifies the scrypt parallelization. Default = " + DEFAULT_SCRYPT_P);
+      options.addOption(null, SCRYPT_CALIBRATE_PARAM_LONG, true,
+          "Picks the scrypt CPU cost so that a password takes about this many milliseconds to verify.");
+      options.addOption(null, MAX_THREADS_PARAM_LONG, true,
+          "Specifies the maximum number of threads handling requests. Default = " + DEFAULT_MAX_THREADS);
+      options.addOption(null, MIN_THREADS_PARAM_LONG, true,
+          "Specifies the number of request threads kept alive when idle. Default = " + DEFAULT_MIN_THREADS);
+      options.addOption(null, THREAD_IDLE_TIMEOUT_PARAM_LONG, true,
+          "Specifies the number of seconds a surplus request thread may sit idle. Default = " + DEFAULT_THREAD_IDLE_TIMEOUT);
+      options.addOption(null, ACCEPT_QUEUE_SIZE_PARAM_LONG, true,
+          "Specifies the number of connections that may wait to be accepted. Default = operating system's");
+      options.addOption(null, CONNECTION_IDLE_TIMEOUT_PARAM_LONG, true,
+          "Specifies the number of seconds an idle connection is kept open. Default = Spark's");
+      options.addOption(null, VIRTUAL_THREADS_PARAM_LONG, false,
+          "Handles requests on virtual threads instead of a thread pool. Requires Java 21.");
       CommandLineParser parser = new DefaultParser();
       CommandLine cmd = parser.parse(options, args);
       
@@ -83,18 +212,120 @@ public class V2CDashboardBackend {
       final String psk = cmd.hasOption(PSK_PARAM_LONG)
           ? cmd.getOptionValue(PSK_PARAM_LONG) : DEFAULT_PSK;
           
+      final int configCacheSize = cmd.hasOption(CONFIG_CACHE_SIZE_PARAM_LONG)
+          ? Integer.parseInt(cmd.getOptionValue(CONFIG_CACHE_SIZE_PARAM_LONG)) : DEFAULT_CONFIG_CACHE_SIZE;
+          
+      final long configCacheTTL = cmd.hasOption(CONFIG_CACHE_TTL_PARAM_LONG)
+          ? Long.parseLong(cmd.getOptionValue(CONFIG_CACHE_TTL_PARAM_LONG)) : DEFAULT_CONFIG_CACHE_TTL;
+          
+      final int userCacheSize = cmd.hasOption(USER_CACHE_SIZE_PARAM_LONG)
+          ? Integer.parseInt(cmd.getOptionValue(USER_CACHE_SIZE_PARAM_LONG)) : DEFAULT_USER_CACHE_SIZE;
+          
+      final long userCacheTTL = cmd.hasOption(USER_CACHE_TTL_PARAM_LONG)
+          ? Long.parseLong(cmd.getOptionValue(USER_CACHE_TTL_PARAM_LONG)) : DEFAULT_USER_CACHE_TTL;
+          
+      final ConfigFormat configFormat = cmd.hasOption(CONFIG_FORMAT_PARAM_LONG)
+          ? ConfigFormat.valueOf(cmd.getOptionValue(CONFIG_FORMAT_PARAM_LONG).toUpperCase()) : DEFAULT_CONFIG_FORMAT;
+          
+      final String configReadPreferenceName = cmd.hasOption(CONFIG_READ_PREFERENCE_PARAM_LONG)
+          ? cmd.getOptionValue(CONFIG_READ_PREFERENCE_PARAM_LONG) : DEFAULT_CONFIG_READ_PREFERENCE;
+      final ReadPreference configReadPreference = cmd.hasOption(CONFIG_MAX_STALENESS_PARAM_LONG)
+          ? ReadPreference.valueOf(configReadPreferenceName, Collections.emptyList(),
+              Long.parseLong(cmd.getOptionValue(CONFIG_MAX_STALENESS_PARAM_LONG)), TimeUnit.SECONDS)
+          : ReadPreference.valueOf(configReadPreferenceName);
+      
+      final String writeConcernName = cmd.hasOption(WRITE_CONCERN_PARAM_LONG)
+          ? cmd.getOptionValue(WRITE_CONCERN_PARAM_LONG) : DEFAULT_WRITE_CONCERN;
+      final WriteConcern writeConcern = writeConcernName.matches("\\d+")
+          ? new WriteConcern(Integer.parseInt(writeConcernName)) : WriteConcern.valueOf(writeConcernName);
+      if(writeConcern == null)
+        throw new IllegalArgumentException("Unknown write concern " + writeConcernName);
+      
+      final int hasherThreads = cmd.hasOption(HASHER_THREADS_PARAM_LONG)
+          ? Integer.parseInt(cmd.getOptionValue(HASHER_THREADS_PARAM_LONG)) : DEFAULT_HASHER_THREADS;
+          
+      final int hasherQueueSize = cmd.hasOption(HASHER_QUEUE_SIZE_PARAM_LONG)
+          ? Integer.parseInt(cmd.getOptionValue(HASHER_QUEUE_SIZE_PARAM_LONG)) : DEFAULT_HASHER_QUEUE_SIZE;
+          
+      final int maxSessions = cmd.hasOption(MAX_SESSIONS_PARAM_LONG)
+          ? Integer.parseInt(cmd.getOptionValue(MAX_SESSIONS_PARAM_LONG)) : DEFAULT_MAX_SESSIONS;
+          
+      final String sessionStore = cmd.hasOption(SESSION_STORE_PARAM_LONG)
+          ? cmd.getOptionValue(SESSION_STORE_PARAM_LONG) : DEFAULT_SESSION_STORE;
+      final SessionBackend sessionBackend;
+      if(sessionStore.equalsIgnoreCase("memory"))
+        sessionBackend = new MemorySessionBackend();
+      else if(sessionStore.equalsIgnoreCase("mongo"))
+        sessionBackend = new MongoSessionBackend();
+      else throw new IllegalArgumentException("Unknown session store " + sessionStore);
+      
+      // other nodes would never hear about logouts
+      if(cmd.hasOption(STATELESS_PARAM_LONG) && cmd.hasOption(WATCH_PARAM_LONG) && !sessionBackend.isShared())
+        throw new IllegalArgumentException("Stateless sessions on more than one node require the mongo session store");
+      
+      final int cookieCacheSize = cmd.hasOption(COOKIE_CACHE_SIZE_PARAM_LONG)
+          ? Integer.parseInt(cmd.getOptionValue(COOKIE_CACHE_SIZE_PARAM_LONG)) : DEFAULT_COOKIE_CACHE_SIZE;
+          
+      final int ipLoginRate = cmd.hasOption(LOGIN_RATE_IP_PARAM_LONG)
+          ? Integer.parseInt(cmd.getOptionValue(LOGIN_RATE_IP_PARAM_LONG)) : DEFAULT_LOGIN_RATE_IP;
+          
+      final int accountLoginRate = cmd.hasOption(LOGIN_RATE_ACCOUNT_PARAM_LONG)
+          ? Integer.parseInt(cmd.getOptionValue(LOGIN_RATE_ACCOUNT_PARAM_LONG)) : DEFAULT_LOGIN_RATE_ACCOUNT;
+          
+      final int scryptR = cmd.hasOption(SCRYPT_R_PARAM_LONG)
+          ? Integer.parseInt(cmd.getOptionValue(SCRYPT_R_PARAM_LONG)) : DEFAULT_SCRYPT_R;
+          
+      final int scryptP = cmd.hasOption(SCRYPT_P_PARAM_LONG)
+          ? Integer.parseInt(cmd.getOptionValue(SCRYPT_P_PARAM_LONG)) : DEFAULT_SCRYPT_P;
+      
+      final TunedServerFactory serverFactory = new TunedServerFactory()
+          .setMaxThreads(cmd.hasOption(MAX_THREADS_PARAM_LONG)
+              ? Integer.parseInt(cmd.getOptionValue(MAX_THREADS_PARAM_LONG)) : DEFAULT_MAX_THREADS)
+          .setMinThreads(cmd.hasOption(MIN_THREADS_PARAM_LONG)
+              ? Integer.parseInt(cmd.getOptionValue(MIN_THREADS_PARAM_LONG)) : DEFAULT_MIN_THREADS)
+          .setThreadIdleTimeout(1000 * (cmd.hasOption(THREAD_IDLE_TIMEOUT_PARAM_LONG)
+              ? Integer.parseInt(cmd.getOptionValue(THREAD_IDLE_TIMEOUT_PARAM_LONG)) : DEFAULT_THREAD_IDLE_TIMEOUT))
+          .setAcceptQueueSize(cmd.hasOption(ACCEPT_QUEUE_SIZE_PARAM_LONG)
+              ? Integer.parseInt(cmd.getOptionValue(ACCEPT_QUEUE_SIZE_PARAM_LONG)) : DEFAULT_ACCEPT_QUEUE_SIZE)
+          .setConnectionIdleTimeout(1000L * (cmd.hasOption(CONNECTION_IDLE_TIMEOUT_PARAM_LONG)
+              ? Long.parseLong(cmd.getOptionValue(CONNECTION_IDLE_TIMEOUT_PARAM_LONG)) : DEFAULT_CONNECTION_IDLE_TIMEOUT))
+          .setVirtualThreads(cmd.hasOption(VIRTUAL_THREADS_PARAM_LONG));
+      
+      int scryptN = DEFAULT_SCRYPT_N;
+      if(cmd.hasOption(SCRYPT_CALIBRATE_PARAM_LONG)) {
+        Logger.onInfo(LOG_LABEL, "Calibrating password hasher...");
+        scryptN = PasswordHasher.calibrate(
+            Long.parseLong(cmd.getOptionValue(SCRYPT_CALIBRATE_PARAM_LONG)), scryptR, scryptP);
+      } else if(cmd.hasOption(SCRYPT_N_PARAM_LONG))
+        scryptN = Integer.parseInt(cmd.getOptionValue(SCRYPT_N_PARAM_LONG));
+      
+      passwordHasher = new PasswordHasher(hasherThreads, hasherQueueSize, scryptN, scryptR, scryptP);
+          
       Logger.onInfo(LOG_LABEL, "Connecting to database...");
-      database = new Database(dbConnection);
+      database = new Database(
+          buildClientSettings(dbConnection, cmd.getOptionValue(DB_SETTINGS_PARAM_LONG)), writeConcern, configFormat, configCacheSize, configCacheTTL * 1000L,
+          userCacheSize, userCacheTTL * 1000L, configReadPreference);
+      
+      if(cmd.hasOption(WATCH_PARAM_LONG)) {
+        Logger.onInfo(LOG_LABEL, "Watching database for changes...");
+        database.watchChanges(cmd.hasOption(RESUME_TOKEN_PARAM_LONG)
+            ? new File(cmd.getOptionValue(RESUME_TOKEN_PARAM_LONG)) : null);
+      }
       
       Logger.onInfo(LOG_LABEL, "Spinning up API driver...");
-      aPIDriver = APIDriver.build(port, "*"); // configure the front end
-      authTokenManager = new AuthTokenManager(psk);
+      aPIDriver = APIDriver.build(port, "*", serverFactory); // configure the front end
+      authTokenManager = new AuthTokenManager(psk, maxSessions, sessionBackend, cmd.hasOption(STATELESS_PARAM_LONG), cookieCacheSize,
+          ipLoginRate, accountLoginRate);
   
       // catch CTRL + C
       Runtime.getRuntime().addShutdownHook(new Thread() {
         @Override public void run() {
           Logger.onInfo(LOG_LABEL, "Shutting off API driver...");
           aPIDriver.halt();
+          authTokenManager.halt();
+          Logger.onInfo(LOG_LABEL, "Disconnecting from database...");
+          database.halt();
+          passwordHasher.halt();
           Logger.onInfo(LOG_LABEL, "Goodbye! ^_^");
         }
       });
@@ -103,6 +334,43 @@ public class V2CDashboardBackend {
     }
   }
   
+  /**
+   * Builds the settings for the database connection.
+   * 
+   * @param connection the host and port of the database server, or a
+   *        connection string
+   * @param settingsFile a file holding a JSON object of further connection
+   *        string options, or <code>null</code> if there is none
+   * @return the database client settings
+   */
+  private static MongoClientSettings buildClientSettings(String connection, String settingsFile) {
+    StringBuilder connectionString = new StringBuilder(connection);
+    if(connection.indexOf("://") < 0) connectionString.insert(0, "mongodb://");
+    
+    if(settingsFile != null) {
+      String settings = readResource(settingsFile);
+      if(settings == null)
+        throw new IllegalArgumentException("Could not read database settings from " + settingsFile);
+      JSONObject options = new JSONObject(settings);
+      
+      // options can only follow a path, even if the path is empty
+      if(connectionString.indexOf("/", connectionString.indexOf("://") + 3) < 0)
+        connectionString.append('/');
+      char separator = connectionString.indexOf("?") < 0 ? '?' : '&';
+      for(String option : options.keySet()) { // values such as passwords may hold characters like '&' or '='
+        connectionString.append(separator)
+            .append(URLEncoder.encode(option, StandardCharsets.UTF_8))
+            .append('=')
+            .append(URLEncoder.encode(String.valueOf(options.get(option)), StandardCharsets.UTF_8));
+        separator = '&';
+      }
+    }
+    
+    return MongoClientSettings.builder()
+        .applyConnectionString(new ConnectionString(connectionString.toString()))
+        .build();
+  }
+  
   /**
    * Reads a resource, preferably plaintext. The resource can be in the
    * classpath, in the JAR (if compiled as such), or on the disk. <em>Reads the
@@ -142,6 +410,15 @@ public class V2CDashboardBackend {
     return database;
   }
   
+  /**
+   * Retrieves the password hasher.
+   * 
+   * @return the password hasher
+   */
+  public static PasswordHasher getPasswordHasher() {
+    return passwordHasher;
+  }
+  
   /**
    * Retrieves the authentication token manager.
    * 
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * A bounded, in-process cache with least-recently-used eviction and a
+ * time-to-live on every entry.
+ * 
+ * @author Caleb L. Power
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public class ExpiringCache<K, V> {
+  
+  private final int maxSize;
+  private final long ttl;
+  private final Map<K, Entry<V>> entries;
+  private long generation = 0L; // bumped on every invalidation
+  
+  /**
+   * Instantiates the cache.
+   * 
+   * @param maxSize the maximum number of entries to hold, or zero to disable caching
+   * @param ttl the number of milliseconds an entry remains valid after being loaded
+   */
+  public ExpiringCache(int maxSize, long ttl) {
+    this.maxSize = maxSize;
+    this.ttl = ttl;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 6304735312478291406L;
+      
+      @Override protected boolean removeEldestEntry(Map.Entry<K, ExpiringCache.Entry<V>> eldest) {
+        return size() > ExpiringCache.this.maxSize;
+      }
+    };
+  }
+  
+  /**
+   * Retrieves a value from the cache if it's present and hasn't expired.
+   * 
+   * @param key the key
+   * @return the cached value, or <code>null</code> if there's no live entry
+   */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if(entry == null) return null;
+    if(entry.hasExpired()) {
+      entries.remove(key);
+      return null;
+    }
+    return entry.value;
+  }
+  
+  /**
+   * Retrieves a value from the cache, loading it if there's no live entry.
+   * If the cache is invalidated while the value is being loaded, the loaded
+   * value is returned but not retained, so that stale data never outlives an
+   * invalidation.
+   * 
+   * @param key the key
+   * @param loader the function used to load the value on a miss
+   * @return the cached or freshly-loaded value
+   */
+  public V get(K key, Function<K, V> loader) {
+    long gen;
+    synchronized(this) {
+      V value = get(key);
+      if(value != null) return value;
+      gen = generation;
+    }
+    
+    V value = loader.apply(key);
+    if(value != null) synchronized(this) {
+      if(gen == generation) put(key, value);
+    }
+    return value;
+  }
+  
+  /**
+   * Retrieves a value from the cache, loading it asynchronously if there's
+   * no live entry. Loaded values are retained on the same terms as they are
+   * by {@link ExpiringCache#get(Object, Function)}.
+   * 
+   * @param key the key
+   * @param loader the function used to start loading the value on a miss
+   * @return a stage that completes with the cached or freshly-loaded value
+   */
+  public CompletionStage<V> getAsync(K key, Function<K, CompletionStage<V>> loader) {
+    long gen;
+    synchronized(this) {
+      V value = get(key);
+      if(value != null) return CompletableFuture.completedFuture(value);
+      gen = generation;
+    }
+    
+    return loader.apply(key).thenApply(value -> {
+      if(value != null) synchronized(this) {
+        if(gen == generation) put(key, value);
+      }
+      return value;
+    });
+  }
+  
+  /**
+   * Retrieves several values from the cache, loading all of the ones without
+   * a live entry at once. Loaded values are retained on the same terms as
+   * they are by {@link ExpiringCache#get(Object, Function)}.
+   * 
+   * @param keys the keys
+   * @param loader the function used to start loading the missing values,
+   *        which may leave out keys that have no value
+   * @return a stage that completes with the cached and freshly-loaded values
+   */
+  public CompletionStage<Map<K, V>> getAllAsync(Collection<K> keys,
+      Function<Set<K>, CompletionStage<Map<K, V>>> loader) {
+    Map<K, V> values = new HashMap<>();
+    Set<K> missing = new HashSet<>();
+    long gen;
+    synchronized(this) {
+      for(K key : keys) {
+        V value = get(key);
+        if(value == null) missing.add(key);
+        else values.put(key, value);
+      }
+      if(missing.isEmpty()) return CompletableFuture.completedFuture(values);
+      gen = generation;
+    }
+    
+    return loader.apply(missing).thenApply(loaded -> {
+      synchronized(this) {
+        if(gen == generation)
+          for(Map.Entry<K, V> entry : loaded.entrySet())
+            if(entry.getValue() != null) put(entry.getKey(), entry.getValue());
+      }
+      values.putAll(loaded);
+      return values;
+    });
+  }
+  
+  /**
+   * Adds or replaces a value in the cache.
+   * 
+   * @param key the key
+   * @param value the value
+   */
+  public synchronized void put(K key, V value) {
+    if(maxSize > 0) entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttl));
+  }
+  
+  /**
+   * Removes a single entry from the cache.
+   * 
+   * @param key the key
+   */
+  public synchronized void invalidate(K key) {
+    generation++;
+    entries.remove(key);
+  }
+  
+  /**
+   * Removes every entry from the cache.
+   */
+  public synchronized void invalidateAll() {
+    generation++;
+    entries.clear();
+  }
+  
+  /**
+   * Retrieves the number of entries currently held by the cache, including
+   * those that have expired but haven't been evicted yet.
+   * 
+   * @return the number of entries
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+  
+  private static class Entry<V> {
+    private final V value;
+    private final long expiration;
+    
+    private Entry(V value, long expiration) {
+      this.value = value;
+      this.expiration = expiration;
+    }
+    
+    private boolean hasExpired() {
+      return System.currentTimeMillis() > expiration;
+    }
+  }
+  
+}
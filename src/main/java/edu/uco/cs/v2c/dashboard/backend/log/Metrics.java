@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.json.JSONObject;
+
+/**
+ * A simple registry of runtime metrics. Gauges are sampled when the metrics
+ * are read, counters only ever go up, and timers keep a count along with the
+ * total and maximum of the recorded durations.
+ * 
+ * @author Caleb L. Power
+ */
+public class Metrics {
+  
+  private static Map<String, Supplier<Number>> gauges = new ConcurrentSkipListMap<>();
+  private static Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+  private static Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+  
+  /**
+   * Registers a gauge, replacing any gauge with the same name.
+   * 
+   * @param name the name of the gauge
+   * @param gauge supplies the current value of the gauge
+   */
+  public static void registerGauge(String name, Supplier<Number> gauge) {
+    gauges.put(name, gauge);
+  }
+  
+  /**
+   * Increments a counter, creating it if need be.
+   * 
+   * @param name the name of the counter
+   */
+  public static void increment(String name) {
+    counters.computeIfAbsent(name, k -> new LongAdder()).increment();
+  }
+  
+  /**
+   * Records a duration with a timer, creating it if need be.
+   * 
+   * @param name the name of the timer
+   * @param nanos the duration, in nanoseconds
+   */
+  public static void record(String name, long nanos) {
+    timers.computeIfAbsent(name, k -> new Timer()).record(nanos);
+  }
+  
+  /**
+   * Takes a snapshot of every metric.
+   * 
+   * @return a JSON object mapping the name of each metric to its value
+   */
+  public static JSONObject toJSON() {
+    JSONObject json = new JSONObject();
+    for(Map.Entry<String, Supplier<Number>> gauge : gauges.entrySet())
+      json.put(gauge.getKey(), gauge.getValue().get());
+    for(Map.Entry<String, LongAdder> counter : counters.entrySet())
+      json.put(counter.getKey(), counter.getValue().sum());
+    for(Map.Entry<String, Timer> timer : timers.entrySet())
+      json.put(timer.getKey(), timer.getValue().toJSON());
+    return json;
+  }
+  
+  private static class Timer {
+    
+    private LongAdder count = new LongAdder();
+    private LongAdder total = new LongAdder();
+    private LongAccumulator max = new LongAccumulator(Math::max, 0L);
+    
+    private void record(long nanos) {
+      count.increment();
+      total.add(nanos);
+      max.accumulate(nanos);
+    }
+    
+    private JSONObject toJSON() {
+      long count = this.count.sum();
+      long total = this.total.sum();
+      return new JSONObject()
+          .put("count", count)
+          .put("meanMillis", count == 0L ? 0.0 : total / 1e6 / count)
+          .put("maxMillis", max.get() / 1e6);
+    }
+    
+  }
+  
+}
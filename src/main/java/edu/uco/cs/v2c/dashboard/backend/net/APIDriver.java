@@ -16,23 +16,43 @@
  */
 package edu.uco.cs.v2c.dashboard.backend.net;
 
+import static spark.Spark.afterAfter;
 import static spark.Spark.before;
 import static spark.Spark.get;
 import static spark.Spark.options;
 import static spark.Spark.port;
 import static spark.Spark.staticFiles;
 import static spark.Spark.stop;
+import static spark.Spark.webSocket;
+import static spark.Spark.webSocketIdleTimeoutMillis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.json.JSONObject;
 
+import edu.uco.cs.v2c.dashboard.backend.V2CDashboardBackend;
 import edu.uco.cs.v2c.dashboard.backend.log.Logger;
+import edu.uco.cs.v2c.dashboard.backend.log.Metrics;
 import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthTokenManager;
+import edu.uco.cs.v2c.dashboard.backend.net.restful.AsyncEndpoint;
 import edu.uco.cs.v2c.dashboard.backend.net.restful.CreateUserEndpoint;
+import edu.uco.cs.v2c.dashboard.backend.net.restful.DeleteSessionEndpoint;
 import edu.uco.cs.v2c.dashboard.backend.net.restful.Endpoint;
 import edu.uco.cs.v2c.dashboard.backend.net.restful.GetConfigEndpoint;
+import edu.uco.cs.v2c.dashboard.backend.net.restful.GetMetricsEndpoint;
 import edu.uco.cs.v2c.dashboard.backend.net.restful.HTTPMethod;
 import edu.uco.cs.v2c.dashboard.backend.net.restful.ModifyUserEndpoint;
+import edu.uco.cs.v2c.dashboard.backend.net.restful.PatchConfigEndpoint;
 import edu.uco.cs.v2c.dashboard.backend.net.restful.SetConfigEndpoint;
+import edu.uco.cs.v2c.dashboard.backend.net.websocket.ConfigEventSocket;
+import spark.Spark;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
 /**
  * API Driver; manages RESTful and WebSocket API endpoints.
@@ -42,11 +62,22 @@ import edu.uco.cs.v2c.dashboard.backend.net.restful.SetConfigEndpoint;
 public class APIDriver implements Runnable {
   
   private static final String LOG_LABEL = "API DRIVER";
+  private static final String PERMIT_ATTRIBUTE = "v2c.permit";
   private static final String RESPONDER_STATIC_FOLDER = ".";
+  private static final int EVENT_QUEUE_SIZE = 8; // pending events per subscriber
+  private static final int EVENT_IDLE_TIMEOUT = 300000; // idle subscribers are dropped after five minutes
+  
+  static final String BUSY_RESPONSE = new JSONObject()
+      .put("status", "error")
+      .put("info", "Server is busy; try again shortly.")
+      .toString(2) + '\n';
   
   private int port; // the port that the front end should run on
   private Endpoint endpoints[] = null; // the pages that will be accessible
+  private Map<Endpoint, ConcurrencyLimiter> limiters = new HashMap<>(); // turns requests away when endpoints are busy
+  private ConfigEventSocket configEventSocket = null; // pushes config changes to subscribers
   private String allowedOrigins = null; // the allowed origins for CORS
+  private TunedServerFactory serverFactory = null; // builds the embedded server
   private Thread thread = null; // the thread to run the frontend
   
   /**
@@ -54,20 +85,32 @@ public class APIDriver implements Runnable {
    * 
    * @param port the port by which the front end will be accessible
    * @param allowedOrigins the allowed origins for CORS
+   * @param serverFactory builds the embedded server
    */
-  private APIDriver(int port, String allowedOrigins) {
+  private APIDriver(int port, String allowedOrigins, TunedServerFactory serverFactory) {
     System.setProperty(org.slf4j.impl.SimpleLogger.DEFAULT_LOG_LEVEL_KEY, "ERROR");
     
     this.allowedOrigins = allowedOrigins;
     this.port = port;
+    this.serverFactory = serverFactory;
     
     endpoints = new Endpoint[] {
         new CreateUserEndpoint(),
+        new DeleteSessionEndpoint(),
         new GetConfigEndpoint(),
+        new GetMetricsEndpoint(),
         new ModifyUserEndpoint(),
+        new PatchConfigEndpoint(),
         new SetConfigEndpoint()
     };
     
+    for(Endpoint endpoint : endpoints)
+      limiters.put(endpoint, new ConcurrencyLimiter(endpoint.getClass().getSimpleName(),
+          endpoint.getConcurrencyLimit(), endpoint.getLatencyTarget()));
+    
+    configEventSocket = new ConfigEventSocket(EVENT_QUEUE_SIZE);
+    V2CDashboardBackend.getDatabase().addChangeListener(configEventSocket);
+    
     staticFiles.location(RESPONDER_STATIC_FOLDER); // relative to the root of the classpath
   }
 
@@ -76,25 +119,20 @@ public class APIDriver implements Runnable {
    */
   @Override public void run() {
     Logger.onInfo(LOG_LABEL, "Exposing API on port " + port);
+    
+    // asynchronous endpoints are served ahead of Spark, which would otherwise tie up a thread for each
+    List<AsyncEndpoint> asyncEndpoints = new ArrayList<>();
+    for(Endpoint endpoint : endpoints)
+      if(endpoint instanceof AsyncEndpoint) asyncEndpoints.add((AsyncEndpoint)endpoint);
+    serverFactory.setHandlerWrapper(new AsyncEndpointHandler(asyncEndpoints, limiters, this::addHeaders));
+    EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory(serverFactory));
     port(port);
     
-    before((req, res) -> {
-      res.header("Access-Control-Allow-Origin", allowedOrigins);
-      res.header("Access-Control-Allow-Methods", "DELETE, POST, GET, PATCH, PUT, OPTIONS");
-      res.header("Access-Control-Allow-Headers",
-          "Content-Type, "
-            + "Access-Control-Allow-Headers, "
-            + "Access-Control-Allow-Origin, "
-            + "Access-Control-Allow-Methods, "
-            + "Authorization, "
-            + "X-Requested-With, "
-            + AuthTokenManager.INCOMING_SESSION_HEADER);
-      res.header("Access-Control-Expose-Headers",
-          String.format("Content-Type, Content-Length, %1$s, %2$s",
-              AuthTokenManager.OUTGOING_SESSION_HEADER,
-              AuthTokenManager.OUTGOING_USER_HEADER));
-      res.header("Content-Type", "application/json"); 
-    });
+    // WebSockets have to be mapped before any of the routes
+    webSocket(String.format("/v%1$d/config/events", APIVersion.VERSION_1.getVal()), configEventSocket);
+    webSocketIdleTimeoutMillis(EVENT_IDLE_TIMEOUT);
+    
+    before((req, res) -> addHeaders(res.raw()));
     
     options("/*", (req, res)-> {
       String accessControlRequestHeaders = req.headers("Access-Control-Request-Headers");
@@ -108,6 +146,26 @@ public class APIDriver implements Runnable {
       return "OK";
     });
     
+    // turn requests away early if their endpoint is already handling all that it can
+    for(Endpoint endpoint : endpoints) {
+      ConcurrencyLimiter limiter = limiters.get(endpoint);
+      before(endpoint.getRoute(), (req, res) -> {
+        if(!endpoint.handles(req.requestMethod())) return; // some other endpoint on the same route
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if(permit == null) {
+          Metrics.increment("limiter.rejected");
+          res.header("Retry-After", Endpoint.RETRY_AFTER);
+          Spark.halt(503, BUSY_RESPONSE); // qualified, since halt() is also a method of this class
+        }
+        req.attribute(PERMIT_ATTRIBUTE, permit);
+      });
+    }
+    
+    afterAfter((req, res) -> {
+      ConcurrencyLimiter.Permit permit = req.attribute(PERMIT_ATTRIBUTE);
+      if(permit != null) permit.release(res.status() >= 500);
+    });
+    
     // iterate through initialized pages and determine the appropriate HTTP request types
     for(Endpoint endpoint : endpoints)
       for(HTTPMethod method : endpoint.getHTTPMethods())
@@ -132,15 +190,41 @@ public class APIDriver implements Runnable {
     stop();
   }
   
+  /**
+   * Sets the headers that every response carries.
+   * 
+   * @param response the HTTP response
+   */
+  private void addHeaders(HttpServletResponse response) {
+    response.addHeader("Access-Control-Allow-Origin", allowedOrigins);
+    response.addHeader("Access-Control-Allow-Methods", "DELETE, POST, GET, PATCH, PUT, OPTIONS");
+    response.addHeader("Access-Control-Allow-Headers",
+        "Content-Type, "
+          + "Access-Control-Allow-Headers, "
+          + "Access-Control-Allow-Origin, "
+          + "Access-Control-Allow-Methods, "
+          + "Authorization, "
+          + "If-Match, "
+          + "If-None-Match, "
+          + "X-Requested-With, "
+          + AuthTokenManager.INCOMING_SESSION_HEADER);
+    response.addHeader("Access-Control-Expose-Headers",
+        String.format("Content-Type, Content-Length, ETag, %1$s, %2$s",
+            AuthTokenManager.OUTGOING_SESSION_HEADER,
+            AuthTokenManager.OUTGOING_USER_HEADER));
+    response.addHeader("Content-Type", "application/json");
+  }
+  
   /**
    * Builds the frontend and launches it in a thread.
    * 
    * @param port the listening port
    * @param allowedOrigins the allowed origins for CORS
+   * @param serverFactory builds the embedded server
    * @return a reference to this FrontEnd object
    */
-  public static APIDriver build(int port, String allowedOrigins) {
-    APIDriver aPIDriver = new APIDriver(port, allowedOrigins);
+  public static APIDriver build(int port, String allowedOrigins, TunedServerFactory serverFactory) {
+    APIDriver aPIDriver = new APIDriver(port, allowedOrigins, serverFactory);
     aPIDriver.thread = new Thread(aPIDriver);
     aPIDriver.thread.setDaemon(false);
     aPIDriver.thread.start();
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import edu.uco.cs.v2c.dashboard.backend.log.Logger;
+import edu.uco.cs.v2c.dashboard.backend.log.Metrics;
+import edu.uco.cs.v2c.dashboard.backend.net.restful.AsyncEndpoint;
+import edu.uco.cs.v2c.dashboard.backend.net.restful.Endpoint;
+import spark.RequestResponseFactory;
+
+/**
+ * Serves asynchronous endpoints ahead of Spark, which can only run routes
+ * to completion on the thread that received the request. Requests for an
+ * asynchronous endpoint are suspended while the endpoint's task is in flight
+ * so that the thread can go serve something else, and the response is
+ * written from the server's thread pool once the task completes; all other
+ * requests are passed along to Spark.
+ * 
+ * @author Caleb L. Power
+ */
+public class AsyncEndpointHandler extends HandlerWrapper {
+  
+  private static final String LOG_LABEL = "API DRIVER";
+  
+  private List<AsyncEndpoint> endpoints = null;
+  private Map<Endpoint, ConcurrencyLimiter> limiters = null;
+  private Consumer<HttpServletResponse> headers = null;
+  
+  /**
+   * Instantiates the handler.
+   * 
+   * @param endpoints the asynchronous endpoints
+   * @param limiters the concurrency limiter for each endpoint
+   * @param headers sets the headers that every response carries
+   */
+  public AsyncEndpointHandler(List<AsyncEndpoint> endpoints,
+      Map<Endpoint, ConcurrencyLimiter> limiters, Consumer<HttpServletResponse> headers) {
+    this.endpoints = endpoints;
+    this.limiters = limiters;
+    this.headers = headers;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void handle(String target, Request baseRequest, HttpServletRequest request,
+      HttpServletResponse response) throws IOException, ServletException {
+    AsyncEndpoint endpoint = null;
+    for(AsyncEndpoint candidate : endpoints)
+      if(candidate.getRoute().equals(target) && candidate.handles(request.getMethod())) {
+        endpoint = candidate;
+        break;
+      }
+    
+    if(endpoint == null) {
+      super.handle(target, baseRequest, request, response);
+      return;
+    }
+    
+    baseRequest.setHandled(true);
+    headers.accept(response);
+    
+    ConcurrencyLimiter.Permit permit = limiters.get(endpoint).tryAcquire();
+    if(permit == null) {
+      Metrics.increment("limiter.rejected");
+      response.setHeader("Retry-After", Endpoint.RETRY_AFTER);
+      response.setStatus(503);
+      write(response, APIDriver.BUSY_RESPONSE);
+      return;
+    }
+    
+    AsyncContext context = request.startAsync();
+    endpoint.onRequestAsync(RequestResponseFactory.create(request), RequestResponseFactory.create(response))
+        .whenComplete((body, cause) -> {
+          // this runs on one of the database driver's threads, which mustn't block on the client
+          try {
+            context.start(() -> respond(context, response, body, permit));
+          } catch(RuntimeException e) { // the request timed out, or the server is stopping
+            Logger.onError(LOG_LABEL, "Could not send response: " + e.getMessage());
+            permit.release(true);
+          }
+        });
+  }
+  
+  private static void respond(AsyncContext context, HttpServletResponse response, String body,
+      ConcurrencyLimiter.Permit permit) {
+    try {
+      write(response, body);
+      context.complete();
+    } catch(IOException | IllegalStateException e) { // the client left, or the request timed out
+      Logger.onError(LOG_LABEL, "Could not send response: " + e.getMessage());
+    } finally {
+      permit.release(response.getStatus() >= 500);
+    }
+  }
+  
+  private static void write(HttpServletResponse response, String body) throws IOException {
+    if(body == null || body.isEmpty()) return;
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    response.setContentLength(bytes.length);
+    response.getOutputStream().write(bytes);
+  }
+  
+}
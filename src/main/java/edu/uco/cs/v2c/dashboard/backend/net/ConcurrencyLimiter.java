@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.uco.cs.v2c.dashboard.backend.log.Metrics;
+
+/**
+ * Limits the number of requests that a route handles at once, adapting the
+ * limit to how the route is coping. The limit creeps up while responses are
+ * quick and the limit is actually being used, and it's cut back sharply
+ * whenever a response is slow or fails (additive increase, multiplicative
+ * decrease). Requests beyond the limit are meant to be turned away right
+ * away, so that a slow database doesn't pile work up on every thread.
+ * 
+ * @author Caleb L. Power
+ */
+public class ConcurrencyLimiter {
+  
+  private static final double BACKOFF = 0.9;
+  private static final double MIN_LIMIT = 1.0;
+  
+  private AtomicInteger inFlight = new AtomicInteger();
+  private double maxLimit = 0.0;
+  private long latencyTarget = 0L;
+  private volatile double limit = 0.0;
+  
+  /**
+   * Instantiates the limiter.
+   * 
+   * @param name the name under which the limiter's metrics are reported
+   * @param maxLimit the most requests that may ever be handled at once
+   * @param latencyTarget the number of milliseconds beyond which a response
+   *        is considered slow
+   */
+  public ConcurrencyLimiter(String name, int maxLimit, long latencyTarget) {
+    this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+    this.latencyTarget = TimeUnit.MILLISECONDS.toNanos(latencyTarget);
+    this.limit = this.maxLimit;
+    
+    Metrics.registerGauge("limiter." + name + ".limit", () -> (int)limit);
+    Metrics.registerGauge("limiter." + name + ".inFlight", inFlight::get);
+  }
+  
+  /**
+   * Admits a request if the limit allows it.
+   * 
+   * @return a permit to be released when the request has been handled, or
+   *         <code>null</code> if the request should be turned away
+   */
+  public Permit tryAcquire() {
+    for(;;) {
+      int current = inFlight.get();
+      if(current >= (int)limit) return null;
+      if(inFlight.compareAndSet(current, current + 1)) return new Permit();
+    }
+  }
+  
+  private void release(long latency, boolean failed) {
+    int current = inFlight.getAndDecrement();
+    synchronized(this) {
+      if(failed || latency > latencyTarget)
+        limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+      else if(current * 2 >= limit) // only grow the limit if it's being put to use
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+    }
+  }
+  
+  /**
+   * Represents a request that has been admitted.
+   * 
+   * @author Caleb L. Power
+   */
+  public class Permit {
+    
+    private long start = System.nanoTime();
+    
+    private Permit() { }
+    
+    /**
+     * Releases the permit, noting how the request went.
+     * 
+     * @param failed <code>true</code> if the request failed on account of the
+     *        server
+     */
+    public void release(boolean failed) {
+      ConcurrencyLimiter.this.release(System.nanoTime() - start, failed);
+    }
+    
+  }
+  
+}
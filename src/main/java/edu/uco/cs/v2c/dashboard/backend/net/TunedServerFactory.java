@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import edu.uco.cs.v2c.dashboard.backend.log.Logger;
+import edu.uco.cs.v2c.dashboard.backend.log.Metrics;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+/**
+ * Builds the embedded Jetty server with a thread pool and connector sized
+ * for the machine it runs on, rather than Spark's defaults.
+ * <p>
+ * Requests can optionally be handled on virtual threads, which are cheap
+ * enough that a request blocked on the database no longer ties up one of a
+ * fixed number of workers. Virtual threads need Java 21; on older runtimes
+ * the regular thread pool is used instead.
+ * 
+ * @author Caleb L. Power
+ */
+public class TunedServerFactory implements JettyServerFactory {
+  
+  private static final String LOG_LABEL = "SERVER FACTORY";
+  
+  private int maxThreads = 200;
+  private int minThreads = 8;
+  private int threadIdleTimeout = 60000;
+  private int acceptQueueSize = 0;
+  private long connectionIdleTimeout = 0L;
+  private boolean virtualThreads = false;
+  private HandlerWrapper handlerWrapper = null;
+  
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The arguments supplied by Spark are ignored in favor of the ones set on
+   * this factory.
+   */
+  @Override public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+    ThreadPool threadPool = null;
+    
+    if(virtualThreads) {
+      ExecutorService executor = newVirtualThreadExecutor();
+      if(executor == null)
+        Logger.onError(LOG_LABEL, "Virtual threads aren't supported by this runtime; using a thread pool instead.");
+      else threadPool = new VirtualThreadPool(executor);
+    }
+    
+    if(threadPool == null) {
+      QueuedThreadPool queuedThreadPool = new QueuedThreadPool(this.maxThreads, this.minThreads, threadIdleTimeout);
+      Metrics.registerGauge("server.threads", queuedThreadPool::getThreads);
+      Metrics.registerGauge("server.threads.busy", queuedThreadPool::getBusyThreads);
+      Metrics.registerGauge("server.queued", queuedThreadPool::getQueueSize);
+      threadPool = queuedThreadPool;
+    }
+    
+    return create(threadPool);
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public Server create(ThreadPool threadPool) {
+    return new Server(threadPool) {
+      @Override public void setConnectors(Connector[] connectors) {
+        // Spark creates its own connector, so it has to be tuned on its way in
+        if(connectors != null) for(Connector connector : connectors) {
+          if(!(connector instanceof ServerConnector)) continue;
+          if(acceptQueueSize > 0)
+            ((ServerConnector)connector).setAcceptQueueSize(acceptQueueSize);
+          if(connectionIdleTimeout > 0L)
+            ((ServerConnector)connector).setIdleTimeout(connectionIdleTimeout);
+        }
+        super.setConnectors(connectors);
+      }
+      
+      @Override public void setHandler(Handler handler) {
+        // likewise, Spark's handlers are only exposed to the server
+        if(handler != null && handlerWrapper != null) {
+          handlerWrapper.setHandler(handler);
+          handler = handlerWrapper;
+        }
+        super.setHandler(handler);
+      }
+    };
+  }
+  
+  /**
+   * Sets the maximum number of worker threads.
+   * 
+   * @param maxThreads the maximum number of threads
+   * @return this TunedServerFactory object
+   */
+  public TunedServerFactory setMaxThreads(int maxThreads) {
+    this.maxThreads = maxThreads;
+    return this;
+  }
+  
+  /**
+   * Sets the number of worker threads kept alive when the server is idle.
+   * 
+   * @param minThreads the minimum number of threads
+   * @return this TunedServerFactory object
+   */
+  public TunedServerFactory setMinThreads(int minThreads) {
+    this.minThreads = minThreads;
+    return this;
+  }
+  
+  /**
+   * Sets the amount of time that a surplus worker thread may sit idle before
+   * it's stopped.
+   * 
+   * @param threadIdleTimeout the idle timeout, in milliseconds
+   * @return this TunedServerFactory object
+   */
+  public TunedServerFactory setThreadIdleTimeout(int threadIdleTimeout) {
+    this.threadIdleTimeout = threadIdleTimeout;
+    return this;
+  }
+  
+  /**
+   * Sets the number of connections that the operating system may hold while
+   * they wait to be accepted.
+   * 
+   * @param acceptQueueSize the size of the accept queue, or zero to leave it
+   *        up to the operating system
+   * @return this TunedServerFactory object
+   */
+  public TunedServerFactory setAcceptQueueSize(int acceptQueueSize) {
+    this.acceptQueueSize = acceptQueueSize;
+    return this;
+  }
+  
+  /**
+   * Sets the amount of time that an idle connection is kept open.
+   * 
+   * @param connectionIdleTimeout the idle timeout, in milliseconds, or zero
+   *        to keep Spark's default
+   * @return this TunedServerFactory object
+   */
+  public TunedServerFactory setConnectionIdleTimeout(long connectionIdleTimeout) {
+    this.connectionIdleTimeout = connectionIdleTimeout;
+    return this;
+  }
+  
+  /**
+   * Sets whether requests should be handled on virtual threads, if the
+   * runtime supports them.
+   * 
+   * @param virtualThreads <code>true</code> to use virtual threads
+   * @return this TunedServerFactory object
+   */
+  public TunedServerFactory setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+    return this;
+  }
+  
+  /**
+   * Sets a handler to sit in front of Spark's handlers, so that it may serve
+   * some requests itself.
+   * 
+   * @param handlerWrapper the handler, which passes along requests that it
+   *        doesn't serve to the handler it wraps
+   * @return this TunedServerFactory object
+   */
+  public TunedServerFactory setHandlerWrapper(HandlerWrapper handlerWrapper) {
+    this.handlerWrapper = handlerWrapper;
+    return this;
+  }
+  
+  // looked up reflectively so that the project still builds against Java 11
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch(ReflectiveOperationException e) {
+      return null;
+    }
+  }
+  
+  private static class VirtualThreadPool extends ContainerLifeCycle implements ThreadPool {
+    
+    private ExecutorService executor = null;
+    
+    private VirtualThreadPool(ExecutorService executor) {
+      this.executor = executor;
+    }
+    
+    @Override public void execute(Runnable task) {
+      executor.execute(task);
+    }
+    
+    @Override public void join() throws InterruptedException {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+    
+    // the server stops its thread pool along with it, which is what lets join() return
+    @Override protected void doStop() throws Exception {
+      executor.shutdown();
+      super.doStop();
+    }
+    
+    // there's no pool to speak of, so there's never a shortage of threads
+    
+    @Override public int getThreads() {
+      return 0;
+    }
+    
+    @Override public int getIdleThreads() {
+      return 0;
+    }
+    
+    @Override public boolean isLowOnThreads() {
+      return false;
+    }
+    
+  }
+  
+}
@@ -16,6 +16,8 @@
  */
 package edu.uco.cs.v2c.dashboard.backend.net.auth;
 
+import java.util.UUID;
+
 import edu.uco.cs.v2c.dashboard.backend.persistent.User;
 
 /**
@@ -25,11 +27,24 @@ import edu.uco.cs.v2c.dashboard.backend.persistent.User;
  */
 public class AuthToken {
   
+  /**
+   * The number of milliseconds that a session can sit idle before it expires.
+   */
+  public static final long SESSION_TIMEOUT = 1000L * 60 * 15;
+  
+  /**
+   * The number of milliseconds after logging in that a stateless session
+   * expires, no matter how often it's renewed.
+   */
+  public static final long MAX_SESSION_LIFETIME = 1000L * 60 * 60 * 12;
+  
   private boolean isNewToken = true;
   private User user = null;
   private String clientIP = null;
   private String sessionKey = null;
-  private long lastAccessTimestamp = System.currentTimeMillis();
+  private long loginTimestamp = System.currentTimeMillis();
+  private volatile long lastAccessTimestamp = System.currentTimeMillis();
+  private volatile long syncTimestamp = System.currentTimeMillis();
   
   /**
    * Determines whether or not this token is new.
@@ -45,7 +60,22 @@ public class AuthToken {
   }
   
   /**
-   * Retrieves the user associated with this authentication token.
+   * Sets whether or not this token is new, which is to say whether or not the
+   * client still needs to be sent a cookie for it.
+   * 
+   * @param isNewToken <code>true</code> iff the token is new
+   * @return this AuthToken object
+   */
+  public AuthToken setN00bStatus(boolean isNewToken) {
+    this.isNewToken = isNewToken;
+    return this;
+  }
+  
+  /**
+   * Retrieves the user associated with this authentication token, as of the
+   * start of the session. This never hits the database, so the profile won't
+   * reflect changes made since then. The profile may be shared, so it must
+   * not be modified.
    * 
    * @return the user associated with this authentication token
    */
@@ -53,6 +83,16 @@ public class AuthToken {
     return user;
   }
   
+  /**
+   * Retrieves the unique ID of the user associated with this authentication
+   * token, without looking up the user's profile.
+   * 
+   * @return the user's unique ID, or <code>null</code> if there's no user
+   */
+  public UUID getUID() {
+    return user == null ? null : user.getID();
+  }
+  
   /**
    * Sets the user associated with this authentication token.
    * 
@@ -128,7 +168,58 @@ public class AuthToken {
    * @return <code>true</code> iff the session key is more than 15 minutes old
    */
   public boolean hasExpired() {
-    return System.currentTimeMillis() - lastAccessTimestamp > 1000 * 60 * 15;
+    return System.currentTimeMillis() - lastAccessTimestamp > SESSION_TIMEOUT;
+  }
+  
+  /**
+   * Retrieves the time at which the session key will expire unless it's used.
+   * 
+   * @return the expiration time, in milliseconds since the epoch
+   */
+  public long getExpiration() {
+    return lastAccessTimestamp + SESSION_TIMEOUT;
+  }
+  
+  /**
+   * Retrieves the time at which the user logged in to start this session.
+   * 
+   * @return the login time, in milliseconds since the epoch
+   */
+  public long getLoginTimestamp() {
+    return loginTimestamp;
+  }
+  
+  /**
+   * Sets the time at which the user logged in to start this session.
+   * 
+   * @param loginTimestamp the login time, in milliseconds since the epoch
+   * @return this AuthToken object
+   */
+  public AuthToken setLoginTimestamp(long loginTimestamp) {
+    this.loginTimestamp = loginTimestamp;
+    return this;
+  }
+  
+  /**
+   * Retrieves the last time that this token was checked against the session
+   * backend.
+   * 
+   * @return the time of the last check, in milliseconds since the epoch
+   */
+  public long getSyncTimestamp() {
+    return syncTimestamp;
+  }
+  
+  /**
+   * Sets the last time that this token was checked against the session
+   * backend.
+   * 
+   * @param syncTimestamp the time of the check, in milliseconds since the epoch
+   * @return this AuthToken object
+   */
+  public AuthToken setSyncTimestamp(long syncTimestamp) {
+    this.syncTimestamp = syncTimestamp;
+    return this;
   }
   
   /**
@@ -17,20 +17,23 @@
 package edu.uco.cs.v2c.dashboard.backend.net.auth;
 
 import java.io.UnsupportedEncodingException;
-import java.util.Map;
+import java.util.Date;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.bouncycastle.util.encoders.Base64;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.TokenExpiredException;
 import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
 
 import edu.uco.cs.v2c.dashboard.backend.V2CDashboardBackend;
 import edu.uco.cs.v2c.dashboard.backend.log.Logger;
+import edu.uco.cs.v2c.dashboard.backend.log.Metrics;
+import edu.uco.cs.v2c.dashboard.backend.persistent.HasherBusyException;
 import edu.uco.cs.v2c.dashboard.backend.persistent.User;
 import spark.Request;
 
@@ -56,19 +59,48 @@ public class AuthTokenManager {
    */
   public static final String OUTGOING_USER_HEADER = "X-V2C-User";
   
+  private static final long SYNC_INTERVAL = 30000L; // how often cached sessions are checked against the backend
+  private static final long VERIFIED_COOKIE_TTL = 60000L; // how long a cookie's signature is trusted without rechecking
+  
   private Algorithm algorithm = null;
-  private Map<String, AuthToken> sessionKeys = null;
+  private JWTVerifier verifier = null;
+  private VerifiedCookieCache verifiedCookies = null;
+  private boolean stateless = false;
+  private RevocationList revocations = null;
+  private AtomicLong revocationSyncTimestamp = new AtomicLong(); // zero, so that the first sync loads everything
+  private SessionBackend backend = null;
+  private SessionStore sessions = null;
+  private RateLimiter ipLimiter = null;
+  private RateLimiter accountLimiter = null;
   
   /**
    * Overloaded constructor to define the preshared secret.
    * 
    * @param presharedSecret the preshared secret
+   * @param maxSessions the maximum number of sessions to keep in memory at once
+   * @param backend the backend in which sessions are persisted
+   * @param stateless <code>true</code> if sessions should be carried entirely
+   *        by their cookies instead of being kept on the server
+   * @param cookieCacheSize the maximum number of verified cookies to remember
+   * @param ipLoginRate the number of login attempts allowed per minute from
+   *        any one IP address
+   * @param accountLoginRate the number of login attempts allowed per minute
+   *        for any one account
    * @throws UnsupportedEncodingException if there's an issue generating the algorithm
    * @throws IllegalArgumentException if there's an issue generating the algorithm
    */
-  public AuthTokenManager(String presharedSecret) throws IllegalArgumentException, UnsupportedEncodingException {
+  public AuthTokenManager(String presharedSecret, int maxSessions, SessionBackend backend, boolean stateless, int cookieCacheSize, int ipLoginRate, int accountLoginRate) throws IllegalArgumentException, UnsupportedEncodingException {
     this.algorithm = Algorithm.HMAC512(presharedSecret);
-    this.sessionKeys = new ConcurrentHashMap<>();
+    this.verifier = JWT.require(algorithm)
+        .withIssuer("V2C")
+        .build();
+    this.verifiedCookies = new VerifiedCookieCache(cookieCacheSize, VERIFIED_COOKIE_TTL);
+    this.stateless = stateless;
+    this.revocations = new RevocationList(AuthToken.SESSION_TIMEOUT);
+    this.backend = backend;
+    this.sessions = new SessionStore(maxSessions);
+    this.ipLimiter = new RateLimiter(ipLoginRate);
+    this.accountLimiter = new RateLimiter(accountLoginRate);
   }
   
   /**
@@ -76,12 +108,17 @@ public class AuthTokenManager {
    * 
    * @param request the HTTP request
    * @return an AuthToken
+   * @throws HasherBusyException if the password can't be checked right now
+   * @throws RateLimitedException if there have been too many login attempts
+   *         from the client's IP address or for the account
    */
-  public AuthToken authorize(Request request) {
+  public AuthToken authorize(Request request) throws HasherBusyException, RateLimitedException {
     AuthToken token = null;
     String authorizationHeader = request.headers("Authorization");
     
     if(authorizationHeader != null) {
+      throttle(ipLimiter, request.ip(), request.ip());
+      
       String email = null;
       String password = null;
       int idx = authorizationHeader.indexOf("V2C ") + 4;
@@ -91,19 +128,26 @@ public class AuthTokenManager {
         if(idx + 1 < authorizationData.length()) {
           email = authorizationData.substring(0, idx);
           password = authorizationData.substring(idx + 1);
+          throttle(accountLimiter, email.toLowerCase(), request.ip());
           User user = V2CDashboardBackend.getDatabase().getUserProfileByEmail(email);
           if(user != null && user.verifyPassword(password)) {
+            user.upgradePassword(password);
             token = new AuthToken().setUser(user);
             UUID uuid = null;
             do {
               uuid = UUID.randomUUID();
-            } while(sessionKeys.containsKey(uuid.toString()));
+            } while(sessions.contains(uuid.toString()));
             token.setSessionKey(uuid.toString());      
             
             addToken(token);
             Logger.onInfo("AUTH TOKEN", "Login success from " + request.ip());
           } else Logger.onError("AUTH TOKEN", "Login failure from " + request.ip());
         }
+      } catch(HasherBusyException e) {
+        Logger.onError("AUTH TOKEN", "Password hasher is too busy to log in " + request.ip());
+        throw e;
+      } catch(RateLimitedException e) {
+        throw e;
       } catch(Exception e) {
         email = null;
         password = null;
@@ -114,34 +158,7 @@ public class AuthTokenManager {
     } else {
       String sessionCookie = request.headers(INCOMING_SESSION_HEADER);
       if(sessionCookie != null) {
-        try {
-          JWTVerifier verifier = JWT.require(algorithm)
-              .withIssuer("V2C")
-              .build();
-          DecodedJWT jwt = verifier.verify(sessionCookie);
-          
-          Claim claim = jwt.getClaim("sessionKey");
-          if(!claim.isNull()) {
-            String sessionKey = claim.asString();
-            if(sessionKey != null && sessionKeys.containsKey(sessionKey)) {
-              AuthToken t = sessionKeys.get(sessionKey);
-              if(!t.hasExpired()) {
-                // t.bump();
-                bumpSessionTime(t);
-                token = t;
-                Logger.onInfo("AUTH TOKEN",
-                    String.format("User %1$s from %2$s utilized good session token.",
-                        t.getUser().getEmail(), request.ip()));
-              } else Logger.onError("AUTH TOKEN",
-                  String.format("User %1$s from %2$s utilized expired token.",
-                      t.getUser().getEmail(), request.ip()));
-            }
-          }
-        } catch(Exception e) {
-          Logger.onError("AUTH TOKEN",
-              String.format("User from %1$s utilized invalid token.",
-                  request.ip()));
-        }
+        token = authorize(sessionCookie, request.ip());
       } else Logger.onDebug("AUTH TOKEN",
           String.format("User from %1$s did not log in or use session token.",
               request.ip()));
@@ -151,12 +168,164 @@ public class AuthTokenManager {
   }
   
   /**
-   * Generate the JWT cookie containing the session key.
+   * Rejects a login attempt if the rate limit for some key has been hit.
+   * 
+   * @param limiter the rate limiter
+   * @param key the key, like an IP address or an email address
+   * @param clientIP the IP address of the client attempting to log in
+   * @throws RateLimitedException if the rate limit has been hit
+   */
+  private void throttle(RateLimiter limiter, String key, String clientIP) throws RateLimitedException {
+    long wait = limiter.tryAcquire(key);
+    if(wait > 0L) {
+      Metrics.increment("login.throttled");
+      Logger.onError("AUTH TOKEN", "Throttled login attempt from " + clientIP);
+      throw new RateLimitedException(wait);
+    }
+  }
+  
+  /**
+   * Authorizes a user by way of a session cookie that was previously issued
+   * by {@link AuthTokenManager#generateCookie(AuthToken)}.
+   * 
+   * @param sessionCookie the session cookie
+   * @param clientIP the IP address of the client presenting the cookie
+   * @return the AuthToken associated with the session, or <code>null</code>
+   *         if the cookie is invalid or the session has expired
+   */
+  public AuthToken authorize(String sessionCookie, String clientIP) {
+    AuthToken token = null;
+    try {
+      // the same cookie comes back on every request, so its signature only needs to be checked once in a while
+      DecodedJWT jwt = verifiedCookies.verify(sessionCookie, verifier);
+      if(jwt.getExpiresAt() != null && jwt.getExpiresAt().before(new Date()))
+        throw new TokenExpiredException("The token has expired."); // it might've been cached before it expired
+      if(stateless) return authorize(jwt, clientIP);
+      
+      Claim claim = jwt.getClaim("sessionKey");
+      if(!claim.isNull()) {
+        String sessionKey = claim.asString();
+        AuthToken t = sessionKey == null ? null : sessions.get(sessionKey);
+        if(t != null && t.hasExpired() && backend.isShared()) {
+          sessions.remove(sessionKey); // other nodes may have kept the session alive in the meantime
+          t = null;
+        }
+        if(t == null && sessionKey != null && backend.isShared()) {
+          t = backend.load(sessionKey); // the user may have logged in on some other node
+          if(t != null) addToken(t.setN00bStatus(false), false); // they already have their cookie
+        }
+        if(t != null) {
+          if(!t.hasExpired() && revalidate(t)) {
+            // t.bump();
+            bumpSessionTime(t);
+            token = t;
+            Logger.onInfo("AUTH TOKEN",
+                String.format("User %1$s from %2$s utilized good session token.",
+                    t.getUser().getEmail(), clientIP));
+          } else {
+            sessions.remove(sessionKey);
+            Logger.onError("AUTH TOKEN",
+                String.format("User %1$s from %2$s utilized expired token.",
+                    t.getUser().getEmail(), clientIP));
+          }
+        }
+      }
+    } catch(Exception e) {
+      Logger.onError("AUTH TOKEN",
+          String.format("User from %1$s utilized invalid token.",
+              clientIP));
+    }
+    return token;
+  }
+  
+  /**
+   * Authorizes a user by way of a stateless cookie, which carries the user's
+   * profile and expires on its own. Nothing on the server is consulted other
+   * than the list of revoked cookies. Cookies that are more than halfway to
+   * expiring are renewed, but never past {@link AuthToken#MAX_SESSION_LIFETIME}
+   * after the user logged in.
+   * 
+   * @param jwt the verified cookie
+   * @param clientIP the IP address of the client presenting the cookie
+   * @return the AuthToken associated with the cookie, or <code>null</code> if
+   *         the cookie was revoked or the session is too old
+   */
+  private AuthToken authorize(DecodedJWT jwt, String clientIP) {
+    syncRevocations();
+    Date loginTime = jwt.getClaim("auth_time").asDate();
+    if(jwt.getId() == null || jwt.getSubject() == null || jwt.getExpiresAt() == null
+        || loginTime == null || revocations.isRevoked(jwt.getId())) {
+      Logger.onError("AUTH TOKEN",
+          String.format("User from %1$s utilized revoked token.", clientIP));
+      return null;
+    }
+    
+    long loginTimestamp = loginTime.getTime();
+    long now = System.currentTimeMillis();
+    if(now - loginTimestamp > AuthToken.MAX_SESSION_LIFETIME) { // renewals stop short of this, but don't rely on it
+      Logger.onError("AUTH TOKEN",
+          String.format("User from %1$s utilized expired token.", clientIP));
+      return null;
+    }
+    
+    User user = new User()
+        .setID(UUID.fromString(jwt.getSubject()))
+        .setEmail(jwt.getClaim("email").asString())
+        .setUsername(jwt.getClaim("username").asString());
+    Logger.onInfo("AUTH TOKEN",
+        String.format("User %1$s from %2$s utilized good session token.",
+            user.getEmail(), clientIP));
+    long expiration = jwt.getExpiresAt().getTime();
+    return new AuthToken()
+        .setUser(user)
+        .setSessionKey(jwt.getId())
+        .setLoginTimestamp(loginTimestamp)
+        .setN00bStatus(expiration - now < AuthToken.SESSION_TIMEOUT / 2
+            && expiration < loginTimestamp + AuthToken.MAX_SESSION_LIFETIME);
+  }
+  
+  /**
+   * Picks up cookies that other nodes have revoked. To keep the backend from
+   * being hit on every request, this is only done every so often, so a logout
+   * can take as long to reach every node as it does for regular sessions.
+   */
+  private void syncRevocations() {
+    if(!backend.isShared()) return;
+    long now = System.currentTimeMillis();
+    long last = revocationSyncTimestamp.get();
+    if(now - last < SYNC_INTERVAL || !revocationSyncTimestamp.compareAndSet(last, now)) return;
+    
+    try {
+      // overlap with the last sync in case the nodes' clocks disagree a little
+      for(String sessionKey : backend.loadRevocations(last - SYNC_INTERVAL))
+        revocations.revoke(sessionKey);
+    } catch(RuntimeException e) { // keep honoring cookies if the backend is down
+      revocationSyncTimestamp.compareAndSet(now, last);
+      Logger.onError("AUTH TOKEN", "Could not sync revoked sessions: " + e.getMessage());
+    }
+  }
+  
+  /**
+   * Generate the JWT cookie containing the session key. Stateless cookies
+   * also carry the user's profile, the time that the user logged in, and an
+   * expiration time.
    * 
    * @param token the auth token
    * @return the JWT
    */
   public String generateCookie(AuthToken token) {
+    if(stateless) return JWT.create()
+        .withIssuer("V2C")
+        .withJWTId(token.getSessionKey())
+        .withSubject(token.getUID().toString())
+        .withClaim("email", token.getUser().getEmail()) // as of login, since the database isn't consulted
+        .withClaim("username", token.getUser().getUsername())
+        .withClaim("auth_time", new Date(token.getLoginTimestamp())) // carried over when the cookie is renewed
+        .withIssuedAt(new Date())
+        .withExpiresAt(new Date(Math.min(token.getExpiration(),
+            token.getLoginTimestamp() + AuthToken.MAX_SESSION_LIFETIME)))
+        .sign(algorithm);
+    
     return JWT.create()
         .withIssuer("V2C")
         .withClaim("sessionKey", token.getSessionKey())
@@ -179,10 +348,9 @@ public class AuthTokenManager {
    * @param isOrigin <code>true</code> iff the addition request originates from this BoneMesh node
    */
   public void addToken(AuthToken token, boolean isOrigin) {
-    for(String key : sessionKeys.keySet())
-      if(sessionKeys.get(key).getUser() == token.getUser())
-        sessionKeys.remove(key);
-    sessionKeys.put(token.getSessionKey().toString(), token);
+    if(stateless) return; // the cookie is the session
+    sessions.put(token); // replaces the user's previous session, if any
+    if(isOrigin) backend.save(token);
   }
   
   /**
@@ -201,7 +369,14 @@ public class AuthTokenManager {
    * @param isOrigin <code>true</code> iff the addition request originates from this BoneMesh node
    */
   public void deleteToken(String sessionKey, boolean isOrigin) {
-    sessionKeys.remove(sessionKey.toString());
+    if(stateless) {
+      revocations.revoke(sessionKey);
+      // until other nodes hear about it, they may still renew the cookie
+      if(isOrigin) backend.revoke(sessionKey, System.currentTimeMillis() + AuthToken.SESSION_TIMEOUT + SYNC_INTERVAL);
+      return;
+    }
+    sessions.remove(sessionKey);
+    if(isOrigin) backend.delete(sessionKey);
   }
   
   /**
@@ -213,4 +388,38 @@ public class AuthTokenManager {
     token.bump();
   }
   
+  /**
+   * Makes sure that a cached session still exists in the session backend, so
+   * that logging out or logging in elsewhere takes effect on every node. To
+   * keep the backend from being hit on every request, this is only done
+   * every so often, and it pushes back the session's expiration at the same
+   * time.
+   * 
+   * @param token the auth token
+   * @return <code>false</code> iff the session no longer exists
+   */
+  private boolean revalidate(AuthToken token) {
+    long now = System.currentTimeMillis();
+    if(now - token.getSyncTimestamp() < SYNC_INTERVAL) return true;
+    
+    try {
+      token.bump(); // so the backend gets the new expiration
+      if(!backend.touch(token)) return false;
+      token.setSyncTimestamp(now);
+    } catch(RuntimeException e) { // don't log everyone out if the backend is down
+      Logger.onError("AUTH TOKEN", "Could not revalidate session: " + e.getMessage());
+    }
+    return true;
+  }
+  
+  /**
+   * Stops background maintenance of the session store.
+   */
+  public void halt() {
+    sessions.halt();
+    verifiedCookies.halt();
+    ipLimiter.halt();
+    accountLimiter.halt();
+  }
+  
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A session backend that keeps sessions in memory and nowhere else, so they
+ * aren't shared with other nodes. The near cache is the only copy of each
+ * session, so there's nothing for this backend to do.
+ * 
+ * @author Caleb L. Power
+ */
+public class MemorySessionBackend implements SessionBackend {
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void save(AuthToken token) { }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public AuthToken load(String sessionKey) {
+    return null;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public boolean touch(AuthToken token) {
+    return true;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void delete(String sessionKey) { }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void revoke(String sessionKey, long expiration) { }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public List<String> loadRevocations(long since) {
+    return Collections.emptyList();
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public boolean isShared() {
+    return false;
+  }
+  
+}
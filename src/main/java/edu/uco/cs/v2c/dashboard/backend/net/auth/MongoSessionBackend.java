@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+import java.util.List;
+
+import edu.uco.cs.v2c.dashboard.backend.V2CDashboardBackend;
+import edu.uco.cs.v2c.dashboard.backend.persistent.SessionRecord;
+import edu.uco.cs.v2c.dashboard.backend.persistent.User;
+
+/**
+ * A session backend that keeps sessions, and revocations of stateless
+ * sessions, in MongoDB collections. Expired records are cleaned up by TTL
+ * indexes.
+ * 
+ * @author Caleb L. Power
+ */
+public class MongoSessionBackend implements SessionBackend {
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void save(AuthToken token) {
+    V2CDashboardBackend.getDatabase().setSession(new SessionRecord(
+        token.getSessionKey(),
+        token.getUID(),
+        token.getExpiration()));
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public AuthToken load(String sessionKey) {
+    SessionRecord session = V2CDashboardBackend.getDatabase().getSession(sessionKey);
+    if(session == null) return null;
+    User user = V2CDashboardBackend.getDatabase().getUserProfileByID(session.getUID());
+    if(user == null) return null;
+    return new AuthToken()
+        .setUser(user)
+        .setSessionKey(sessionKey);
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public boolean touch(AuthToken token) {
+    return V2CDashboardBackend.getDatabase().touchSession(token.getSessionKey(), token.getExpiration());
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void delete(String sessionKey) {
+    V2CDashboardBackend.getDatabase().deleteSession(sessionKey);
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void revoke(String sessionKey, long expiration) {
+    V2CDashboardBackend.getDatabase().revokeSession(sessionKey, expiration);
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public List<String> loadRevocations(long since) {
+    return V2CDashboardBackend.getDatabase().getRevokedSessions(since);
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public boolean isShared() {
+    return true;
+  }
+  
+}
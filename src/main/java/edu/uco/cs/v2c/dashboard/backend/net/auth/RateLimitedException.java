@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+/**
+ * Thrown when a client has made too many attempts and has to wait before
+ * making another.
+ * 
+ * @author Caleb L. Power
+ */
+public class RateLimitedException extends Exception {
+  private static final long serialVersionUID = 6519206184283725133L;
+  
+  private long retryAfter = 0L;
+  
+  /**
+   * Instantiates the exception.
+   * 
+   * @param retryAfter the number of milliseconds until the client can try again
+   */
+  public RateLimitedException(long retryAfter) {
+    super(String.format("Rate limit exceeded; retry in %1$d ms.", retryAfter));
+    this.retryAfter = retryAfter;
+  }
+  
+  /**
+   * Retrieves the amount of time that the client has to wait.
+   * 
+   * @return the number of milliseconds until the client can try again
+   */
+  public long getRetryAfter() {
+    return retryAfter;
+  }
+  
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how often something can be done on behalf of any one key, like an
+ * IP address or an account. Each key gets a token bucket, kept as a single
+ * atomic timestamp (the time at which the bucket will be full again), so
+ * checking a bucket takes no locks and a rejection costs next to nothing.
+ * Buckets that have filled back up are the same as new ones, so they're
+ * thrown away in the background.
+ * 
+ * @author Caleb L. Power
+ */
+public class RateLimiter {
+  
+  private static final long SWEEP_MILLIS = 60000L;
+  
+  private long interval = 0L;
+  private long tolerance = 0L;
+  private Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+  private ScheduledExecutorService sweeper = null;
+  
+  /**
+   * Instantiates the limiter.
+   * 
+   * @param perMinute the number of times per minute that a key can be used on
+   *        average, which is also the number of times it can be used in a burst
+   */
+  public RateLimiter(int perMinute) {
+    if(perMinute < 1)
+      throw new IllegalArgumentException("The rate limit must be positive.");
+    this.interval = TimeUnit.MINUTES.toNanos(1L) / perMinute;
+    this.tolerance = interval * (perMinute - 1);
+    
+    sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "rate-limiter-sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sweeper.scheduleWithFixedDelay(() -> {
+      final long now = System.nanoTime();
+      buckets.values().removeIf(bucket -> bucket.get() - now < 0L);
+    }, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * Takes a token from a key's bucket, if there's one to take.
+   * 
+   * @param key the key
+   * @return zero if a token was taken, or else the number of milliseconds
+   *         until one will be available
+   */
+  public long tryAcquire(String key) {
+    final long now = System.nanoTime();
+    AtomicLong bucket = buckets.get(key);
+    if(bucket == null) bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    
+    for(;;) {
+      long full = bucket.get();
+      long start = full - now < 0L ? now : full;
+      long wait = start - now - tolerance;
+      if(wait > 0L) return TimeUnit.NANOSECONDS.toMillis(wait) + 1L;
+      if(bucket.compareAndSet(full, start + interval)) return 0L;
+    }
+  }
+  
+  /**
+   * Stops throwing away idle buckets.
+   */
+  public void halt() {
+    sweeper.shutdownNow();
+  }
+  
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A compact list of revoked token IDs, backed by a pair of Bloom filters.
+ * Checking the list never blocks and never writes, so it's cheap enough to do
+ * on every request. The list may report that a token has been revoked when
+ * it hasn't, but it's tuned so that this is very unlikely.
+ * <p>
+ * Tokens only need to be remembered until they would have expired anyway, so
+ * the list starts a fresh filter every token lifetime and forgets the one
+ * before last.
+ * 
+ * @author Caleb L. Power
+ */
+public class RevocationList {
+  
+  private static final int FILTER_BITS = 1 << 20; // 128 KiB per filter
+  private static final int HASH_COUNT = 7;
+  
+  private long lifetime = 0L;
+  private volatile long rotationTimestamp = 0L;
+  private volatile Filter current = new Filter();
+  private volatile Filter previous = new Filter();
+  
+  /**
+   * Instantiates the list.
+   * 
+   * @param lifetime the number of milliseconds that a token is valid for
+   */
+  public RevocationList(long lifetime) {
+    this.lifetime = lifetime;
+    this.rotationTimestamp = System.currentTimeMillis() + lifetime;
+  }
+  
+  /**
+   * Revokes a token.
+   * 
+   * @param id the token's unique ID
+   */
+  public void revoke(String id) {
+    rotate();
+    current.add(hash(id));
+  }
+  
+  /**
+   * Determines whether or not a token has been revoked.
+   * 
+   * @param id the token's unique ID
+   * @return <code>true</code> if the token has (probably) been revoked
+   */
+  public boolean isRevoked(String id) {
+    rotate();
+    long hash = hash(id);
+    return current.mightContain(hash) || previous.mightContain(hash);
+  }
+  
+  private void rotate() {
+    if(System.currentTimeMillis() < rotationTimestamp) return;
+    synchronized(this) {
+      long now = System.currentTimeMillis();
+      if(now < rotationTimestamp) return;
+      previous = now < rotationTimestamp + lifetime ? current : new Filter();
+      current = new Filter();
+      rotationTimestamp = now + lifetime;
+    }
+  }
+  
+  private static long hash(String id) { // 64-bit FNV-1a
+    long hash = 0xcbf29ce484222325L;
+    for(int i = 0; i < id.length(); i++) {
+      hash ^= id.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+  
+  private static class Filter {
+    
+    private AtomicLongArray bits = new AtomicLongArray(FILTER_BITS / 64);
+    
+    private void add(long hash) {
+      for(int i = 0; i < HASH_COUNT; i++) {
+        int bit = index(hash, i);
+        long mask = 1L << bit;
+        bits.accumulateAndGet(bit >>> 6, mask, (a, b) -> a | b);
+      }
+    }
+    
+    private boolean mightContain(long hash) {
+      for(int i = 0; i < HASH_COUNT; i++) {
+        int bit = index(hash, i);
+        if((bits.get(bit >>> 6) & 1L << bit) == 0L) return false;
+      }
+      return true;
+    }
+    
+    private static int index(long hash, int i) { // double hashing on the two halves of the hash
+      int h1 = (int)hash;
+      int h2 = (int)(hash >>> 32);
+      return (h1 + i * h2) & (FILTER_BITS - 1);
+    }
+    
+  }
+  
+}
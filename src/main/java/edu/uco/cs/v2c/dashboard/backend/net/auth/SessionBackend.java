@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+import java.util.List;
+
+/**
+ * Persists sessions somewhere that other nodes can see them, so that a user
+ * who logs in on one node can use their session on any other. The
+ * {@link SessionStore} acts as a near cache in front of the backend.
+ * 
+ * @author Caleb L. Power
+ */
+public interface SessionBackend {
+  
+  /**
+   * Saves a session, replacing any session that the user already had.
+   * 
+   * @param token the session's auth token
+   */
+  public void save(AuthToken token);
+  
+  /**
+   * Loads a session that hasn't expired.
+   * 
+   * @param sessionKey the session key
+   * @return the session's auth token, or <code>null</code> if there's no such
+   *         session
+   */
+  public AuthToken load(String sessionKey);
+  
+  /**
+   * Pushes back the expiration of a session to match its auth token.
+   * 
+   * @param token the session's auth token
+   * @return <code>true</code> unless the session has since been deleted,
+   *         replaced, or expired
+   */
+  public boolean touch(AuthToken token);
+  
+  /**
+   * Deletes a session.
+   * 
+   * @param sessionKey the session key
+   */
+  public void delete(String sessionKey);
+  
+  /**
+   * Records that a stateless session was revoked, so that other nodes stop
+   * honoring its cookie. The record can be forgotten once the cookie would
+   * have expired anyway.
+   * 
+   * @param sessionKey the session key
+   * @param expiration the time at which the cookie expires, in milliseconds
+   *        since the epoch
+   */
+  public void revoke(String sessionKey, long expiration);
+  
+  /**
+   * Loads the keys of stateless sessions revoked by any node.
+   * 
+   * @param since the earliest revocation time of interest, in milliseconds
+   *        since the epoch
+   * @return the keys of the sessions revoked since then
+   */
+  public List<String> loadRevocations(long since);
+  
+  /**
+   * Determines whether or not sessions are shared with other nodes. If they
+   * aren't, then the near cache is the only copy of a session.
+   * 
+   * @return <code>true</code> iff sessions are visible to other nodes
+   */
+  public boolean isShared();
+  
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import edu.uco.cs.v2c.dashboard.backend.log.Metrics;
+
+/**
+ * Keeps track of active sessions. Sessions are indexed both by session key and
+ * by user, so that finding, adding, or removing a session takes constant time
+ * no matter how many sessions there are. Each user has at most one session.
+ * <p>
+ * Sessions are also filed into buckets by the time at which they expire. A
+ * background sweeper empties the buckets as they come due, so abandoned
+ * sessions are dropped a few at a time instead of piling up. Sessions that
+ * were used since they were filed are simply refiled. The same buckets are
+ * used to evict the least recently used sessions when there are too many.
+ * 
+ * @author Caleb L. Power
+ */
+public class SessionStore {
+  
+  private static final long SLOT_MILLIS = 10000L; // the span of time covered by each bucket
+  
+  private int maxSessions = 0;
+  private Map<String, AuthToken> sessions = new ConcurrentHashMap<>();
+  private Map<UUID, String> sessionsByUser = new ConcurrentHashMap<>();
+  private TreeMap<Long, Deque<String>> expirations = new TreeMap<>(); // guarded by itself
+  private ScheduledExecutorService sweeper = null;
+  
+  /**
+   * Instantiates the store and starts sweeping expired sessions.
+   * 
+   * @param maxSessions the maximum number of sessions to hold at once
+   */
+  public SessionStore(int maxSessions) {
+    if(maxSessions < 1)
+      throw new IllegalArgumentException("The session cap must be positive.");
+    this.maxSessions = maxSessions;
+    
+    sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "session-sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sweeper.scheduleWithFixedDelay(this::sweep, SLOT_MILLIS, SLOT_MILLIS, TimeUnit.MILLISECONDS);
+    
+    Metrics.registerGauge("sessions.live", sessions::size);
+  }
+  
+  /**
+   * Retrieves a session.
+   * 
+   * @param sessionKey the session key
+   * @return the session's auth token, or <code>null</code> if there's no such
+   *         session
+   */
+  public AuthToken get(String sessionKey) {
+    return sessions.get(sessionKey);
+  }
+  
+  /**
+   * Determines whether or not a session exists.
+   * 
+   * @param sessionKey the session key
+   * @return <code>true</code> iff the session exists
+   */
+  public boolean contains(String sessionKey) {
+    return sessions.containsKey(sessionKey);
+  }
+  
+  /**
+   * Adds a session, replacing any session that the user already had.
+   * 
+   * @param token the session's auth token, which must have a user
+   */
+  public void put(AuthToken token) {
+    final String sessionKey = token.getSessionKey();
+    // adding and replacing under the user's entry keeps the two maps consistent
+    sessionsByUser.compute(token.getUID(), (uid, previous) -> {
+      if(previous != null && !previous.equals(sessionKey)) sessions.remove(previous);
+      sessions.put(sessionKey, token);
+      return sessionKey;
+    });
+    
+    synchronized(expirations) {
+      file(sessionKey, slotOf(token));
+      while(sessions.size() > maxSessions && evictLeastRecentlyUsed())
+        Metrics.increment("sessions.evicted");
+    }
+  }
+  
+  /**
+   * Removes a session.
+   * 
+   * @param sessionKey the session key
+   * @return the removed session's auth token, or <code>null</code> if there
+   *         was no such session
+   */
+  public AuthToken remove(String sessionKey) {
+    AuthToken token = sessions.remove(sessionKey);
+    if(token != null) sessionsByUser.remove(token.getUID(), sessionKey);
+    return token;
+  }
+  
+  /**
+   * Removes a user's session, if they have one.
+   * 
+   * @param uid the user's unique ID
+   * @return the removed session's auth token, or <code>null</code> if the
+   *         user didn't have a session
+   */
+  public AuthToken removeByUser(UUID uid) {
+    String sessionKey = sessionsByUser.get(uid);
+    return sessionKey == null ? null : remove(sessionKey);
+  }
+  
+  /**
+   * Retrieves the number of sessions.
+   * 
+   * @return the number of sessions
+   */
+  public int size() {
+    return sessions.size();
+  }
+  
+  /**
+   * Stops sweeping expired sessions.
+   */
+  public void halt() {
+    sweeper.shutdownNow();
+  }
+  
+  /**
+   * Empties every bucket that has come due. Sessions in those buckets are
+   * removed if they've expired and refiled if they haven't.
+   */
+  private void sweep() {
+    final long now = System.currentTimeMillis() / SLOT_MILLIS;
+    for(;;) synchronized(expirations) { // one bucket at a time, so logins don't wait on the whole sweep
+      Map.Entry<Long, Deque<String>> bucket = expirations.firstEntry();
+      if(bucket == null || bucket.getKey() >= now) return; // only buckets that have fully elapsed
+      expirations.pollFirstEntry();
+      
+      for(String sessionKey : bucket.getValue()) {
+        AuthToken token = sessions.get(sessionKey);
+        if(token == null) continue; // the session was already removed
+        if(token.hasExpired()) {
+          remove(sessionKey);
+          Metrics.increment("sessions.expired");
+        } else file(sessionKey, slotOf(token));
+      }
+    }
+  }
+  
+  /**
+   * Evicts the session in the earliest bucket. Sessions that turn out to have
+   * been used since they were filed are refiled along the way.
+   * 
+   * @return <code>true</code> if a session was evicted
+   */
+  private boolean evictLeastRecentlyUsed() {
+    Map.Entry<Long, Deque<String>> bucket = null;
+    while((bucket = expirations.firstEntry()) != null) {
+      String sessionKey = bucket.getValue().poll();
+      if(bucket.getValue().isEmpty()) expirations.remove(bucket.getKey());
+      
+      AuthToken token = sessions.get(sessionKey);
+      if(token == null) continue;
+      
+      long slot = slotOf(token);
+      if(slot > bucket.getKey()) file(sessionKey, slot);
+      else {
+        remove(sessionKey);
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  private void file(String sessionKey, long slot) {
+    expirations.computeIfAbsent(slot, k -> new ArrayDeque<>()).add(sessionKey);
+  }
+  
+  private static long slotOf(AuthToken token) {
+    return token.getExpiration() / SLOT_MILLIS;
+  }
+  
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+/**
+ * Remembers session cookies whose signatures have been checked recently, so
+ * that the same cookie isn't rechecked on every request. Every request with
+ * a session goes through here, so looking up a cookie takes no locks; there's
+ * no recency ordering to maintain, so once the cache is full, new cookies are
+ * simply checked every time until expired ones are thrown away in the
+ * background.
+ * 
+ * @author Caleb L. Power
+ */
+public class VerifiedCookieCache {
+  
+  private int maxSize = 0;
+  private long ttl = 0L;
+  private Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private ScheduledExecutorService sweeper = null;
+  
+  /**
+   * Instantiates the cache.
+   * 
+   * @param maxSize the maximum number of cookies to remember, or zero to
+   *        check every cookie every time
+   * @param ttl the number of milliseconds that a cookie's signature is
+   *        trusted without being rechecked
+   */
+  public VerifiedCookieCache(int maxSize, long ttl) {
+    this.maxSize = maxSize;
+    this.ttl = ttl;
+    
+    sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "cookie-cache-sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sweeper.scheduleWithFixedDelay(() -> {
+      final long now = System.currentTimeMillis();
+      entries.values().removeIf(entry -> entry.expiration <= now);
+    }, ttl, ttl, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * Retrieves a cookie that was verified recently, or else verifies it.
+   * 
+   * @param cookie the session cookie
+   * @param verifier the verifier used on a miss
+   * @return the decoded cookie
+   * @throws com.auth0.jwt.exceptions.JWTVerificationException if the cookie
+   *         fails verification
+   */
+  public DecodedJWT verify(String cookie, JWTVerifier verifier) {
+    final long now = System.currentTimeMillis();
+    Entry entry = entries.get(cookie);
+    if(entry != null && now < entry.expiration) return entry.jwt;
+    
+    DecodedJWT jwt = verifier.verify(cookie);
+    if(entry != null || entries.size() < maxSize)
+      entries.put(cookie, new Entry(jwt, now + ttl));
+    return jwt;
+  }
+  
+  /**
+   * Stops throwing away expired cookies.
+   */
+  public void halt() {
+    sweeper.shutdownNow();
+  }
+  
+  private static class Entry {
+    
+    private final DecodedJWT jwt;
+    private final long expiration;
+    
+    private Entry(DecodedJWT jwt, long expiration) {
+      this.jwt = jwt;
+      this.expiration = expiration;
+    }
+    
+  }
+  
+}
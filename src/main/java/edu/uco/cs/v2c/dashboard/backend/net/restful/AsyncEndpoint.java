@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.restful;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import org.json.JSONObject;
+
+import edu.uco.cs.v2c.dashboard.backend.net.APIVersion;
+import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthToken;
+import spark.Request;
+import spark.Response;
+
+/**
+ * An endpoint that doesn't hold onto a thread while it waits on I/O. The
+ * request is suspended while the endpoint's task is in flight and resumed
+ * when the task completes, so the number of requests being handled at once
+ * isn't bounded by the number of threads.
+ * 
+ * @author Caleb L. Power
+ */
+public abstract class AsyncEndpoint extends Endpoint {
+  
+  /**
+   * Overloaded constructor to set the request type, the route, and the version.
+   * 
+   * @param resource the public resource
+   * @param version the version of the endpoint
+   * @param httpMethods the HTTP methods that can be used on the route
+   */
+  protected AsyncEndpoint(String resource, APIVersion version, HTTPMethod... httpMethods) {
+    super(resource, version, httpMethods);
+  }
+  
+  /**
+   * The actions that will be carried out for all routes, without waiting on
+   * the endpoint's task to finish.
+   * 
+   * @param request REST request
+   * @param response REST response
+   * @return a stage that completes with the body of the HTTP response
+   */
+  public CompletionStage<String> onRequestAsync(Request request, Response response) {
+    CompletionStage<JSONObject> task = null;
+    try {
+      task = doEndpointTaskAsync(request, response, authenticate(request, response));
+    } catch(Exception e) {
+      return CompletableFuture.completedFuture(renderError(request, response, e));
+    }
+    
+    return task.handle((body, cause) -> {
+      if(cause == null) return render(body);
+      if(cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+      return renderError(request, response, cause);
+    });
+  }
+  
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Blocks until the asynchronous task completes.
+   */
+  @Override public JSONObject doEndpointTask(Request request, Response response, AuthToken authToken) throws EndpointException {
+    try {
+      return doEndpointTaskAsync(request, response, authToken).toCompletableFuture().join();
+    } catch(CompletionException e) {
+      if(e.getCause() instanceof EndpointException) throw (EndpointException)e.getCause();
+      throw e;
+    }
+  }
+  
+  /**
+   * The action in question for the particular module. The task may complete
+   * exceptionally with an {@link EndpointException} if the response is not
+   * good.
+   * 
+   * @param request HTTP request
+   * @param response HTTP response
+   * @param authToken the authentication token
+   * @return a stage that completes with the HTTP response (often in JSON), or
+   *         with <code>null</code> if the response should not have a body
+   * @throws EndpointException thrown if the response is not good
+   */
+  public abstract CompletionStage<JSONObject> doEndpointTaskAsync(Request request, Response response, AuthToken authToken)
+      throws EndpointException;
+  
+}
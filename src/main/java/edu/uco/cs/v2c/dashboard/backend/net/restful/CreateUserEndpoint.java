@@ -23,6 +23,8 @@ import org.json.JSONObject;
 import edu.uco.cs.v2c.dashboard.backend.V2CDashboardBackend;
 import edu.uco.cs.v2c.dashboard.backend.net.APIVersion;
 import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthToken;
+import edu.uco.cs.v2c.dashboard.backend.persistent.DuplicateEntryException;
+import edu.uco.cs.v2c.dashboard.backend.persistent.HasherBusyException;
 import edu.uco.cs.v2c.dashboard.backend.persistent.User;
 import spark.Request;
 import spark.Response;
@@ -41,6 +43,20 @@ public class CreateUserEndpoint extends Endpoint {
     super("/users", APIVersion.VERSION_1, HTTPMethod.POST);
   }
   
+  /**
+   * {@inheritDoc}
+   */
+  @Override public int getConcurrencyLimit() {
+    return 16; // every request hashes a password
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public long getLatencyTarget() {
+    return 3000L;
+  }
+  
   /**
    * {@inheritDoc}
    */
@@ -51,27 +67,32 @@ public class CreateUserEndpoint extends Endpoint {
       String username = request.getString("username");
       String password = request.getString("password");
       
-      if(V2CDashboardBackend.getDatabase().getUserProfileByEmail(email) != null)
-        throw new EndpointException(req, "Email already exists.", 409);
-      
-      if(V2CDashboardBackend.getDatabase().getUserProfileByUsername(username) != null)
-        throw new EndpointException(req, "Username already exists.", 409);
-      
-      UUID uuid = null;
-      do uuid = UUID.randomUUID();
-      while(V2CDashboardBackend.getDatabase().getUserProfileByID(uuid) != null);
-      
-      V2CDashboardBackend.getDatabase().setUserProfile(new User()
+      User user = new User()
           .setEmail(email)
           .setUsername(username)
-          .setPassword(password)
-          .setID(uuid));
+          .setPassword(password);
+      
+      // the unique indexes decide whether or not the email, username, or ID are taken
+      boolean created = false;
+      do try {
+        V2CDashboardBackend.getDatabase().createUserProfile(user.setID(UUID.randomUUID()));
+        created = true;
+      } catch(DuplicateEntryException e) {
+        if("email".equals(e.getField()))
+          throw new EndpointException(req, "Email already exists.", 409, e);
+        if("username".equals(e.getField()))
+          throw new EndpointException(req, "Username already exists.", 409, e);
+        if(!"uid".equals(e.getField()))
+          throw new EndpointException(req, "User already exists.", 409, e);
+      } while(!created); // on the off chance that the ID collided, roll another one
       
       res.status(201);
       return new JSONObject()
           .put("status", "ok")
           .put("info", "User created.");
       
+    } catch(HasherBusyException e) {
+      throw serverBusy(req, res, e);
     } catch(JSONException e) {
       throw new EndpointException(req, "Syntax error: " + e.getMessage(), 400, e);
     }
@@ -22,6 +22,8 @@ import edu.uco.cs.v2c.dashboard.backend.log.Logger;
 import edu.uco.cs.v2c.dashboard.backend.net.APIVersion;
 import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthToken;
 import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthTokenManager;
+import edu.uco.cs.v2c.dashboard.backend.net.auth.RateLimitedException;
+import edu.uco.cs.v2c.dashboard.backend.persistent.HasherBusyException;
 import spark.Request;
 import spark.Response;
 
@@ -32,6 +34,15 @@ import spark.Response;
  */
 public abstract class Endpoint {
   
+  /**
+   * The number of seconds that a client should wait before retrying when the
+   * server is too busy to handle its request.
+   */
+  public static final String RETRY_AFTER = "1";
+  
+  private static final int DEFAULT_CONCURRENCY_LIMIT = 100;
+  private static final long DEFAULT_LATENCY_TARGET = 1000L;
+  
   private HTTPMethod[] methods = null;
   private String route = null;
   
@@ -85,6 +96,40 @@ public abstract class Endpoint {
     }
   }
   
+  /**
+   * Builds the exception to throw when a password can't be hashed or checked
+   * because the password hasher is at capacity. The client is told to retry
+   * shortly instead of being left waiting on a slow response.
+   * 
+   * @param request the HTTP request
+   * @param response the HTTP response
+   * @param cause the rejection from the password hasher
+   * @return an exception denoting that the service is unavailable
+   */
+  public static EndpointException serverBusy(Request request, Response response, HasherBusyException cause) {
+    response.header("Retry-After", RETRY_AFTER);
+    return new EndpointException(request, "Server is busy; try again shortly.", 503, cause);
+  }
+  
+  /**
+   * Determines whether or not an entity tag satisfies a conditional request
+   * header such as <code>If-Match</code> or <code>If-None-Match</code>. Weak
+   * and strong tags are compared alike.
+   * 
+   * @param header the value of the conditional header, which may be a list
+   * @param eTag the current entity tag, including quotes
+   * @return <code>true</code> iff the header lists the tag or is a wildcard
+   */
+  public static boolean matchesETag(String header, String eTag) {
+    if(header == null || eTag == null) return false;
+    for(String candidate : header.split(",")) {
+      candidate = candidate.trim();
+      if(candidate.startsWith("W/")) candidate = candidate.substring(2);
+      if(candidate.equals("*") || candidate.equals(eTag)) return true;
+    }
+    return false;
+  }
+  
   /**
    * Retrieve the HTTP method types for this route.
    * 
@@ -94,6 +139,38 @@ public abstract class Endpoint {
     return methods;
   }
   
+  /**
+   * Determines whether or not a request's method is handled by this endpoint.
+   * 
+   * @param method the name of the HTTP method
+   * @return <code>true</code> iff the endpoint handles the method
+   */
+  public boolean handles(String method) {
+    for(HTTPMethod httpMethod : methods)
+      if(httpMethod.name().equalsIgnoreCase(method)) return true;
+    return false;
+  }
+  
+  /**
+   * Retrieves the most requests that this endpoint may handle at once. The
+   * actual limit adapts to load, but never goes above this.
+   * 
+   * @return the maximum number of concurrent requests
+   */
+  public int getConcurrencyLimit() {
+    return DEFAULT_CONCURRENCY_LIMIT;
+  }
+  
+  /**
+   * Retrieves the longest that this endpoint should normally take to respond.
+   * Slower responses are taken as a sign of overload.
+   * 
+   * @return the latency target, in milliseconds
+   */
+  public long getLatencyTarget() {
+    return DEFAULT_LATENCY_TARGET;
+  }
+  
   /**
    * Retrieve the route for the module.
    * 
@@ -112,16 +189,66 @@ public abstract class Endpoint {
    */
   public String onRequest(Request request, Response response) {
     try {
-      Logger.onInfo("API", String.format("%1$s accessed %2$s %3$s.",
-          request.ip(),
-          request.requestMethod(),
-          request.pathInfo()));
-      
-      AuthToken authToken = V2CDashboardBackend.getAuthTokenManager().authorize(request);
-      if(authToken.getUser() != null) response.header(AuthTokenManager.OUTGOING_USER_HEADER, authToken.getUser().getID().toString());
-      
-      return doEndpointTask(request, response, authToken).toString(2) + '\n';
-    } catch(EndpointException e) {
+      return render(doEndpointTask(request, response, authenticate(request, response)));
+    } catch(Exception e) {
+      return renderError(request, response, e);
+    }
+  }
+  
+  /**
+   * Logs the request and works out who made it, renewing the client's
+   * session cookie if need be.
+   * 
+   * @param request REST request
+   * @param response REST response
+   * @return the authentication token
+   * @throws EndpointException if the client can't be authenticated right now
+   */
+  protected AuthToken authenticate(Request request, Response response) throws EndpointException {
+    Logger.onInfo("API", String.format("%1$s accessed %2$s %3$s.",
+        request.ip(),
+        request.requestMethod(),
+        request.pathInfo()));
+    
+    AuthToken authToken = null;
+    try {
+      authToken = V2CDashboardBackend.getAuthTokenManager().authorize(request);
+    } catch(HasherBusyException e) {
+      throw serverBusy(request, response, e);
+    } catch(RateLimitedException e) {
+      response.header("Retry-After", Long.toString((e.getRetryAfter() + 999L) / 1000L));
+      throw new EndpointException(request, "Too many login attempts; try again later.", 429, e);
+    }
+    if(authToken.getUID() != null) {
+      response.header(AuthTokenManager.OUTGOING_USER_HEADER, authToken.getUID().toString());
+      if(authToken.checkN00bStatus()) // the client needs a (fresh) cookie
+        response.header(AuthTokenManager.OUTGOING_SESSION_HEADER,
+            V2CDashboardBackend.getAuthTokenManager().generateCookie(authToken));
+    }
+    return authToken;
+  }
+  
+  /**
+   * Serializes the body of a successful response.
+   * 
+   * @param body the body, or <code>null</code> if there shouldn't be one
+   * @return the serialized body
+   */
+  protected static String render(JSONObject body) {
+    return body == null ? "" : body.toString(2) + '\n';
+  }
+  
+  /**
+   * Logs a failed request and serializes the error for the client.
+   * 
+   * @param request REST request
+   * @param response REST response
+   * @param cause the reason the request failed
+   * @return the serialized error
+   */
+  protected static String renderError(Request request, Response response, Throwable cause) {
+    if(cause instanceof EndpointException) {
+      EndpointException e = (EndpointException)cause;
       Logger.onError("API", String.format("Response code %1$d: %2$s (%3$s)",
           e.getErrorCode(),
           e.getMessage(),
@@ -132,15 +259,16 @@ public abstract class Endpoint {
           .put("status", "error")
           .put("info", e.toString())
           .toString(2) + '\n';
-    } catch(Exception e) { // if we hit this block, something has gone terribly wrong (or the developer is dumb)
-      Logger.onError("API", e.getMessage());
-      e.printStackTrace();
-      response.status(500);
-      return new JSONObject()
-          .put("status", "error")
-          .put("info", "Internal server error.")
-          .toString(2) + '\n';
     }
+    
+    // if we get here, something has gone terribly wrong (or the developer is dumb)
+    Logger.onError("API", cause.getMessage());
+    cause.printStackTrace();
+    response.status(500);
+    return new JSONObject()
+        .put("status", "error")
+        .put("info", "Internal server error.")
+        .toString(2) + '\n';
   }
   
   /**
@@ -149,7 +277,8 @@ public abstract class Endpoint {
    * @param request HTTP request
    * @param response HTTP response
    * @param authToken the authentication token
-   * @return ModelAndView containing the HTTP response (often in JSON)
+   * @return ModelAndView containing the HTTP response (often in JSON), or
+   *         <code>null</code> if the response should not have a body
    * @throws EndpointException thrown if the response is not good
    */
   public abstract JSONObject doEndpointTask(Request request, Response response, AuthToken authToken) throws EndpointException;
@@ -15,11 +15,15 @@
  */
 package edu.uco.cs.v2c.dashboard.backend.net.restful;
 
+import java.util.concurrent.CompletionStage;
+
 import org.json.JSONObject;
 
 import edu.uco.cs.v2c.dashboard.backend.V2CDashboardBackend;
 import edu.uco.cs.v2c.dashboard.backend.net.APIVersion;
 import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthToken;
+import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthTokenManager;
+import edu.uco.cs.v2c.dashboard.backend.persistent.Config;
 import spark.Request;
 import spark.Response;
 
@@ -28,7 +32,7 @@ import spark.Response;
  * 
  * @author Caleb L. Power
  */
-public class GetConfigEndpoint extends Endpoint {
+public class GetConfigEndpoint extends AsyncEndpoint {
   
   /**
    * Instantiates the endpoint.
@@ -40,17 +44,38 @@ public class GetConfigEndpoint extends Endpoint {
   /**
    * {@inheritDoc}
    */
-  @Override public JSONObject doEndpointTask(Request req, Response res, AuthToken authToken) throws EndpointException {
-    JSONObject response = new JSONObject()
-        .put("global", V2CDashboardBackend.getDatabase().getGlobalConfig())
-        .put("status", "ok")
-        .put("info", "Configs retrieved.");
-    
+  @Override public CompletionStage<JSONObject> doEndpointTaskAsync(Request req, Response res, AuthToken authToken)
+      throws EndpointException {
     if(authToken.hasClientPerms()) {
       authorize(authToken, req, res);
-      response.put("user", V2CDashboardBackend.getDatabase().getUserConfig(authToken.getUser().getID()));
+      // both configs come back from the same query
+      return V2CDashboardBackend.getDatabase().getConfigsAsync(authToken.getUID())
+          .thenApply(configs -> respond(req, res, configs[0], configs[1]));
+    }
+    
+    return V2CDashboardBackend.getDatabase().getGlobalConfigAsync()
+        .thenApply(globalConfig -> respond(req, res, globalConfig, null));
+  }
+  
+  private JSONObject respond(Request req, Response res, Config globalConfig, Config userConfig) {
+    // the configs are usually cached along with their tags, so this is cheap to figure out
+    String eTag = String.format("\"%1$s\"", userConfig == null
+        ? globalConfig.getTag() : globalConfig.getTag() + '.' + userConfig.getTag());
+    res.header("ETag", eTag);
+    res.header("Cache-Control", "no-cache");
+    res.header("Vary", AuthTokenManager.INCOMING_SESSION_HEADER);
+    
+    if(matchesETag(req.headers("If-None-Match"), eTag)) {
+      res.status(304);
+      return null;
     }
     
+    JSONObject response = new JSONObject()
+        .put("global", globalConfig.getData())
+        .put("status", "ok")
+        .put("info", "Configs retrieved.");
+    if(userConfig != null) response.put("user", userConfig.getData());
+    
     res.status(200);
     return response;
   }
@@ -23,6 +23,8 @@ import org.json.JSONObject;
 import edu.uco.cs.v2c.dashboard.backend.V2CDashboardBackend;
 import edu.uco.cs.v2c.dashboard.backend.net.APIVersion;
 import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthToken;
+import edu.uco.cs.v2c.dashboard.backend.persistent.DuplicateEntryException;
+import edu.uco.cs.v2c.dashboard.backend.persistent.HasherBusyException;
 import edu.uco.cs.v2c.dashboard.backend.persistent.User;
 import spark.Request;
 import spark.Response;
@@ -41,6 +43,20 @@ public class ModifyUserEndpoint extends Endpoint {
     super("/users/:uid", APIVersion.VERSION_1, HTTPMethod.PATCH);
   }
   
+  /**
+   * {@inheritDoc}
+   */
+  @Override public int getConcurrencyLimit() {
+    return 16; // every request hashes a password
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public long getLatencyTarget() {
+    return 3000L;
+  }
+  
   /**
    * {@inheritDoc}
    */
@@ -58,32 +74,36 @@ public class ModifyUserEndpoint extends Endpoint {
       user = uid == null ? null : V2CDashboardBackend.getDatabase().getUserProfileByID(uid);
       if(user == null) throw new EndpointException(req, "User not found.", 404);
       
-      if(!authToken.getUser().getID().equals(uid))
+      if(!authToken.getUID().equals(uid))
         throw new EndpointException(req, "Access denied.", 403);
+      user = user.copy(); // the cached profile is shared
       
       JSONObject request = new JSONObject(req.body());
       String email = request.has("email") ? request.getString("email") : user.getEmail();
       String username = request.has("username") ? request.getString("username") : user.getUsername();
       String password = request.has("password") ? request.getString("password") : null;
       
-      if(!email.equalsIgnoreCase(user.getEmail())
-          && V2CDashboardBackend.getDatabase().getUserProfileByEmail(email) != null)
-        throw new EndpointException(req, "Email already exists.", 409);
-      
-      if(!username.equalsIgnoreCase(user.getUsername())
-          && V2CDashboardBackend.getDatabase().getUserProfileByUsername(username) != null)
-        throw new EndpointException(req, "Username already exists.", 409);
-      
       if(password != null) user.setPassword(password);
       user.setEmail(email).setUsername(username);
       
-      V2CDashboardBackend.getDatabase().setUserProfile(user);
+      // the unique indexes decide whether or not the email or username are taken
+      try {
+        V2CDashboardBackend.getDatabase().setUserProfile(user);
+      } catch(DuplicateEntryException e) {
+        if("email".equals(e.getField()))
+          throw new EndpointException(req, "Email already exists.", 409, e);
+        if("username".equals(e.getField()))
+          throw new EndpointException(req, "Username already exists.", 409, e);
+        throw new EndpointException(req, "User already exists.", 409, e);
+      }
       
       res.status(202);
       return new JSONObject()
           .put("status", "ok")
           .put("info", "User updated.");
       
+    } catch(HasherBusyException e) {
+      throw serverBusy(req, res, e);
     } catch(JSONException e) {
       throw new EndpointException(req, "Syntax error: " + e.getMessage(), 400, e);
     }
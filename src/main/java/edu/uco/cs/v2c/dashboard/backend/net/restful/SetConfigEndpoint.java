@@ -21,6 +21,8 @@ import org.json.JSONObject;
 import edu.uco.cs.v2c.dashboard.backend.V2CDashboardBackend;
 import edu.uco.cs.v2c.dashboard.backend.net.APIVersion;
 import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthToken;
+import edu.uco.cs.v2c.dashboard.backend.persistent.Config;
+import edu.uco.cs.v2c.dashboard.backend.persistent.VersionMismatchException;
 import spark.Request;
 import spark.Response;
 
@@ -52,12 +54,34 @@ public class SetConfigEndpoint extends Endpoint {
       if(request.has("global")) globalConfig = request.getJSONObject("global");
       if(request.has("user")) userConfig = request.getJSONObject("user");
       
-      if(globalConfig != null)
-        V2CDashboardBackend.getDatabase().setGlobalConfig(globalConfig);
+      // If-Match takes the ETag from GetConfigEndpoint, i.e. "<global tag>.<user tag>"
+      String ifMatch = req.headers("If-Match");
+      boolean conditional = ifMatch != null && !ifMatch.trim().equals("*");
+      Long globalVersion = null;
+      Long userVersion = null;
+      if(conditional) {
+        // the two configs can't be written atomically, so one could be saved while the other is rejected
+        if(globalConfig != null && userConfig != null)
+          throw new EndpointException(req, "Conditional updates may only modify one config at a time.", 400);
+        
+        String[] tags = ifMatch.split(",")[0].trim().replaceFirst("^W/", "").replace("\"", "").split("\\.");
+        globalVersion = Config.parseTag(tags[0]);
+        userVersion = tags.length > 1 ? Config.parseTag(tags[1]) : null;
+        if(globalConfig != null && globalVersion == null || userConfig != null && userVersion == null)
+          throw new EndpointException(req, "Precondition failed.", 412);
+      }
       
-      if(userConfig != null)
-        V2CDashboardBackend.getDatabase().setUserConfig(
-            authToken.getUser().getID(), userConfig);
+      if(globalConfig != null) {
+        if(conditional) V2CDashboardBackend.getDatabase().setGlobalConfig(globalConfig, globalVersion);
+        else V2CDashboardBackend.getDatabase().setGlobalConfig(globalConfig);
+      }
+      
+      if(userConfig != null) {
+        if(conditional) V2CDashboardBackend.getDatabase().setUserConfig(
+            authToken.getUID(), userConfig, userVersion);
+        else V2CDashboardBackend.getDatabase().setUserConfig(
+            authToken.getUID(), userConfig);
+      }
       
       res.status(202);
       return new JSONObject()
@@ -65,6 +89,8 @@ public class SetConfigEndpoint extends Endpoint {
           .put("info", "Configuration updated.");
     } catch(JSONException e) {
       throw new EndpointException(req, "Syntax error: " + e.getMessage(), 400, e);
+    } catch(VersionMismatchException e) {
+      throw new EndpointException(req, "Configuration was modified by someone else.", 412, e);
     }
   }
 
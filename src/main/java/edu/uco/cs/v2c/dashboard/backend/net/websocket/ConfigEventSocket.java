@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.websocket;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.json.JSONObject;
+
+import edu.uco.cs.v2c.dashboard.backend.V2CDashboardBackend;
+import edu.uco.cs.v2c.dashboard.backend.log.Logger;
+import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthToken;
+import edu.uco.cs.v2c.dashboard.backend.net.auth.AuthTokenManager;
+import edu.uco.cs.v2c.dashboard.backend.persistent.ChangeListener;
+
+/**
+ * WebSocket endpoint that pushes config change events to subscribers so
+ * that they don't have to poll for them. Events only say which config
+ * changed; subscribers are expected to fetch the config themselves, which
+ * is cheap when they send along the ETag they already have.
+ * <p>
+ * Browsers can't set headers on WebSocket requests, so the session cookie
+ * may be passed in the <code>session</code> query parameter instead of the
+ * usual header. Anonymous subscribers only hear about the global config.
+ * 
+ * @author Caleb L. Power
+ */
+@WebSocket public class ConfigEventSocket implements ChangeListener {
+  
+  private static final String LOG_LABEL = "CONFIG EVENTS";
+  private static final String SESSION_PARAM = "session";
+  private static final String GLOBAL_EVENT = new JSONObject()
+      .put("event", "config")
+      .put("scope", "global")
+      .toString();
+  private static final String USER_EVENT = new JSONObject()
+      .put("event", "config")
+      .put("scope", "user")
+      .toString();
+  
+  private int queueSize = 0;
+  private Map<Session, Subscriber> subscribers = new ConcurrentHashMap<>();
+  private Map<UUID, Set<Subscriber>> subscribersByUser = new ConcurrentHashMap<>();
+  
+  /**
+   * Instantiates the endpoint.
+   * 
+   * @param queueSize the maximum number of pending events per subscriber
+   */
+  public ConfigEventSocket(int queueSize) {
+    this.queueSize = queueSize;
+  }
+  
+  /**
+   * Subscribes a newly-connected session.
+   * 
+   * @param session the WebSocket session
+   */
+  @OnWebSocketConnect public void onConnect(Session session) {
+    String clientIP = session.getRemoteAddress().getAddress().getHostAddress();
+    String sessionCookie = session.getUpgradeRequest().getHeader(AuthTokenManager.INCOMING_SESSION_HEADER);
+    if(sessionCookie == null) {
+      List<String> params = session.getUpgradeRequest().getParameterMap().get(SESSION_PARAM);
+      if(params != null && !params.isEmpty()) sessionCookie = params.get(0);
+    }
+    
+    UUID uid = null;
+    if(sessionCookie != null) {
+      AuthToken token = V2CDashboardBackend.getAuthTokenManager().authorize(sessionCookie, clientIP);
+      if(token == null) {
+        session.close(4001, "Invalid session.");
+        return;
+      }
+      uid = token.getUID();
+    }
+    
+    Subscriber subscriber = new Subscriber(session, uid, queueSize);
+    subscribers.put(session, subscriber);
+    if(uid != null)
+      subscribersByUser.computeIfAbsent(uid, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+    Logger.onDebug(LOG_LABEL, String.format("%1$s subscribed to config events.", clientIP));
+  }
+  
+  /**
+   * Unsubscribes a session that has disconnected.
+   * 
+   * @param session the WebSocket session
+   * @param statusCode the close status code
+   * @param reason the reason for closure
+   */
+  @OnWebSocketClose public void onClose(Session session, int statusCode, String reason) {
+    Subscriber subscriber = subscribers.remove(session);
+    if(subscriber != null && subscriber.getUID() != null)
+      subscribersByUser.computeIfPresent(subscriber.getUID(), (k, v) -> {
+        v.remove(subscriber);
+        return v.isEmpty() ? null : v;
+      });
+  }
+  
+  /**
+   * Ignores incoming messages, which clients may send to keep the connection
+   * from idling out.
+   * 
+   * @param session the WebSocket session
+   * @param message the message
+   */
+  @OnWebSocketMessage public void onMessage(Session session, String message) { }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void onGlobalConfigChange() {
+    for(Subscriber subscriber : subscribers.values())
+      subscriber.offer(GLOBAL_EVENT);
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void onUserConfigChange(UUID uid) {
+    Set<Subscriber> userSubscribers = subscribersByUser.get(uid);
+    if(userSubscribers != null)
+      for(Subscriber subscriber : userSubscribers)
+        subscriber.offer(USER_EVENT);
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void onUserProfileChange(UUID uid) { }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void onUnknownChange() {
+    for(Subscriber subscriber : subscribers.values()) {
+      subscriber.offer(GLOBAL_EVENT);
+      if(subscriber.getUID() != null) subscriber.offer(USER_EVENT);
+    }
+  }
+  
+  /**
+   * Retrieves the number of sessions currently subscribed.
+   * 
+   * @return the number of subscribers
+   */
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+  
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.websocket;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+/**
+ * A WebSocket session that has subscribed to events. Each subscriber has a
+ * small queue of pending events and at most one write in flight, so a slow
+ * client can only ever hold up its own events.
+ * 
+ * @author Caleb L. Power
+ */
+public class Subscriber implements WriteCallback {
+  
+  private Session session = null;
+  private UUID uid = null;
+  private BlockingQueue<String> queue = null;
+  private AtomicBoolean sending = new AtomicBoolean(false);
+  
+  /**
+   * Instantiates the subscriber.
+   * 
+   * @param session the WebSocket session
+   * @param uid the unique identifier of the authenticated user, or
+   *        <code>null</code> if the subscriber is anonymous
+   * @param queueSize the maximum number of events to hold for the subscriber
+   */
+  public Subscriber(Session session, UUID uid, int queueSize) {
+    this.session = session;
+    this.uid = uid;
+    this.queue = new ArrayBlockingQueue<>(queueSize);
+  }
+  
+  /**
+   * Retrieves the unique identifier of the authenticated user.
+   * 
+   * @return the user's unique identifier, or <code>null</code> if the
+   *         subscriber is anonymous
+   */
+  public UUID getUID() {
+    return uid;
+  }
+  
+  /**
+   * Queues an event for delivery. Events are notices that something changed,
+   * so an event that is already pending isn't queued twice. If the queue is
+   * full, the oldest pending event is dropped to make room.
+   * 
+   * @param event the serialized event
+   */
+  public void offer(String event) {
+    if(!queue.contains(event))
+      while(!queue.offer(event))
+        queue.poll();
+    drain();
+  }
+  
+  private void drain() {
+    while(sending.compareAndSet(false, true)) {
+      String event = queue.poll();
+      if(event != null) {
+        if(session.isOpen())
+          session.getRemote().sendString(event, this);
+        else sending.set(false);
+        return;
+      }
+      sending.set(false);
+      if(queue.isEmpty()) return; // otherwise, something was queued after the poll
+    }
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void writeSuccess() {
+    sending.set(false);
+    drain();
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void writeFailed(Throwable cause) {
+    queue.clear();
+    sending.set(false);
+    session.close();
+  }
+  
+}
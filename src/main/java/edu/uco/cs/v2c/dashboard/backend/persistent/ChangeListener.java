@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import java.util.UUID;
+
+/**
+ * Receives notifications when persisted data changes, whether the change
+ * was made by this node or by some other node sharing the database.
+ * 
+ * @author Caleb L. Power
+ */
+public interface ChangeListener {
+  
+  /**
+   * Invoked when the global configuration has changed.
+   */
+  public void onGlobalConfigChange();
+  
+  /**
+   * Invoked when a user's configuration has changed.
+   * 
+   * @param uid the unique identifier of the user
+   */
+  public void onUserConfigChange(UUID uid);
+  
+  /**
+   * Invoked when a user's profile has changed.
+   * 
+   * @param uid the unique identifier of the user
+   */
+  public void onUserProfileChange(UUID uid);
+  
+  /**
+   * Invoked when some change couldn't be attributed to a particular document,
+   * in which case all derived state should be considered stale.
+   */
+  public void onUnknownChange();
+  
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+
+import edu.uco.cs.v2c.dashboard.backend.log.Logger;
+
+/**
+ * Watches the config and user collections for changes made by any node and
+ * relays them to a {@link ChangeListener}. Requires MongoDB to be running as
+ * a replica set, although a single-node replica set is sufficient.
+ * 
+ * @author Caleb L. Power
+ */
+public class ChangeStreamWatcher implements Runnable {
+  
+  private static final String LOG_LABEL = "CHANGE STREAM";
+  private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+  private static final long MAX_AWAIT_TIME = 1000L;
+  private static final long RETRY_DELAY = 5000L;
+  private static final long TOKEN_SAVE_INTERVAL = 60000L; // how often the token is saved while nothing relevant changes
+  
+  private MongoDatabase database = null;
+  private String configCollection = null;
+  private String userCollection = null;
+  private ChangeListener listener = null;
+  private File resumeTokenFile = null;
+  private BsonDocument resumeToken = null;
+  private long tokenSaveTimestamp = 0L;
+  private Thread thread = null;
+  private volatile boolean running = false;
+  
+  /**
+   * Instantiates the watcher.
+   * 
+   * @param database the database containing the watched collections
+   * @param configCollection the name of the config collection
+   * @param userCollection the name of the user collection
+   * @param listener the listener to notify
+   * @param resumeTokenFile the file in which the resume token is persisted
+   *        across restarts, or <code>null</code> to keep it in memory only
+   */
+  public ChangeStreamWatcher(MongoDatabase database, String configCollection, String userCollection,
+      ChangeListener listener, File resumeTokenFile) {
+    this.database = database;
+    this.configCollection = configCollection;
+    this.userCollection = userCollection;
+    this.listener = listener;
+    this.resumeTokenFile = resumeTokenFile;
+  }
+  
+  /**
+   * Starts watching in a separate thread.
+   */
+  public void start() {
+    resumeToken = loadResumeToken();
+    running = true;
+    thread = new Thread(this, "change-stream-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+  
+  /**
+   * Stops watching. Blocks until the watcher thread exits, then saves the
+   * resume token so that a restart picks up where this left off.
+   */
+  public void halt() {
+    running = false;
+    if(thread != null) try {
+      thread.join();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if(resumeToken != null) saveResumeToken(resumeToken);
+  }
+  
+  /**
+   * Consumes the change stream until halted, reopening it from the last
+   * resume token whenever the cursor fails.
+   */
+  @Override public void run() {
+    while(running) {
+      // if we don't know where we left off, anything could have changed in the meantime
+      if(resumeToken == null) listener.onUnknownChange();
+      
+      ChangeStreamIterable<Document> stream = database.watch(Arrays.asList(
+          Aggregates.match(Filters.in("ns.coll", configCollection, userCollection))))
+          .fullDocument(FullDocument.UPDATE_LOOKUP)
+          .maxAwaitTime(MAX_AWAIT_TIME, TimeUnit.MILLISECONDS);
+      if(resumeToken != null) stream = stream.resumeAfter(resumeToken);
+      
+      try(MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+        Logger.onInfo(LOG_LABEL, resumeToken == null
+            ? "Watching for changes." : "Resumed watching for changes.");
+        
+        while(running) {
+          ChangeStreamDocument<Document> change = cursor.tryNext();
+          if(change != null) dispatch(change);
+          advance(cursor.getResumeToken(), change != null);
+        }
+      } catch(MongoException e) {
+        if(e instanceof MongoCommandException
+            && ((MongoCommandException)e).getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+          Logger.onError(LOG_LABEL, "Resume token is no longer in the oplog; starting over.");
+          resumeToken = null;
+          saveResumeToken(null);
+        } else Logger.onError(LOG_LABEL, "Change stream failed: " + e.getMessage());
+      } catch(RuntimeException e) {
+        Logger.onError(LOG_LABEL, "Could not process change: " + e.getMessage());
+      }
+      
+      if(running) {
+        try {
+          Thread.sleep(RETRY_DELAY);
+        } catch(InterruptedException e) {
+          running = false;
+        }
+      }
+    }
+  }
+  
+  /**
+   * Records how far the stream has been consumed. The resume token moves
+   * forward every time the cursor is polled, even if nothing changed, so it's
+   * only written out after a change was dispatched or every so often.
+   * 
+   * @param token the cursor's latest resume token
+   * @param dispatched <code>true</code> if a change was just dispatched
+   */
+  void advance(BsonDocument token, boolean dispatched) {
+    if(token == null || token.equals(resumeToken)) return;
+    resumeToken = token;
+    long now = System.currentTimeMillis();
+    if(dispatched || now - tokenSaveTimestamp >= TOKEN_SAVE_INTERVAL) {
+      saveResumeToken(token);
+      tokenSaveTimestamp = now;
+    }
+  }
+  
+  /**
+   * Relays a change to the listener.
+   * 
+   * @param change the change
+   */
+  void dispatch(ChangeStreamDocument<Document> change) {
+    switch(change.getOperationType()) {
+    case INSERT:
+    case REPLACE:
+    case UPDATE:
+      Document document = change.getFullDocument();
+      String collection = change.getNamespace().getCollectionName();
+      
+      if(document == null) { // the document was deleted before it could be looked up
+        listener.onUnknownChange();
+      } else if(collection.equals(configCollection)) {
+        if(document.getBoolean("global", false))
+          listener.onGlobalConfigChange();
+        else if(document.getString("uid") != null)
+          listener.onUserConfigChange(UUID.fromString(document.getString("uid")));
+        else listener.onUnknownChange();
+      } else if(collection.equals(userCollection) && document.getString("uid") != null) {
+        listener.onUserProfileChange(UUID.fromString(document.getString("uid")));
+      } else listener.onUnknownChange();
+      break;
+    
+    case INVALIDATE: // the stream can't be resumed past this point
+      resumeToken = null;
+      saveResumeToken(null);
+      throw new MongoException("Change stream was invalidated.");
+    
+    default: // deletions only carry the _id, and drops and renames affect everything
+      listener.onUnknownChange();
+      break;
+    }
+  }
+  
+  /**
+   * Retrieves the resume token that the stream will be opened with.
+   * 
+   * @return the resume token, or <code>null</code> if there isn't one
+   */
+  BsonDocument getResumeToken() {
+    return resumeToken;
+  }
+  
+  /**
+   * Reads the resume token persisted by an earlier run.
+   * 
+   * @return the resume token, or <code>null</code> if there isn't one
+   */
+  BsonDocument loadResumeToken() {
+    if(resumeTokenFile == null || !resumeTokenFile.canRead()) return null;
+    try {
+      String json = new String(Files.readAllBytes(resumeTokenFile.toPath()), StandardCharsets.UTF_8).trim();
+      return json.isEmpty() ? null : BsonDocument.parse(json);
+    } catch(Exception e) {
+      Logger.onError(LOG_LABEL, "Could not read resume token: " + e.getMessage());
+      return null;
+    }
+  }
+  
+  private void saveResumeToken(BsonDocument token) {
+    if(resumeTokenFile == null) return;
+    try {
+      File temp = new File(resumeTokenFile.getPath() + ".tmp");
+      Files.write(temp.toPath(), (token == null ? "" : token.toJson()).getBytes(StandardCharsets.UTF_8));
+      Files.move(temp.toPath(), resumeTokenFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch(IOException e) {
+      Logger.onError(LOG_LABEL, "Could not save resume token: " + e.getMessage());
+    }
+  }
+  
+}
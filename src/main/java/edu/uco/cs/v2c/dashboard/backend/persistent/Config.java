@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.json.JSONObject;
+
+/**
+ * A snapshot of some configuration, along with its version and a tag that
+ * changes whenever the configuration does.
+ * 
+ * @author Caleb L. Power
+ */
+public class Config {
+  
+  private JSONObject data = null;
+  private long version = 0L;
+  private String tag = null;
+  
+  /**
+   * Instantiates the snapshot. Versioned configs are tagged with their
+   * version. Configs that predate versioning are tagged with a hash of their
+   * contents instead.
+   * 
+   * @param data the configuration data
+   * @param version the version of the config, or zero if it's unversioned
+   */
+  public Config(JSONObject data, long version) {
+    this.data = data;
+    this.version = version;
+    if(version > 0L) {
+      this.tag = Long.toString(version);
+    } else try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(data.toString().getBytes(StandardCharsets.UTF_8));
+      this.tag = 'h' + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 12));
+    } catch(NoSuchAlgorithmException e) { // every JRE is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+  
+  /**
+   * Retrieves the configuration data. The data may be shared with other
+   * callers, so it must not be modified.
+   * 
+   * @return a JSON object representing the configuration
+   */
+  public JSONObject getData() {
+    return data;
+  }
+  
+  /**
+   * Retrieves the version of the configuration.
+   * 
+   * @return the version, or zero if the configuration is unversioned
+   */
+  public long getVersion() {
+    return version;
+  }
+  
+  /**
+   * Retrieves the tag, which is suitable for use in an HTTP entity tag.
+   * 
+   * @return a short string that changes whenever the configuration does
+   */
+  public String getTag() {
+    return tag;
+  }
+  
+  /**
+   * Determines the version of a configuration from its tag.
+   * 
+   * @param tag the tag
+   * @return the version denoted by the tag, zero if the tag denotes an
+   *         unversioned configuration, or <code>null</code> if the tag is
+   *         not recognized
+   */
+  public static Long parseTag(String tag) {
+    if(tag == null || tag.isEmpty()) return null;
+    if(tag.charAt(0) == 'h') return 0L;
+    try {
+      long version = Long.parseLong(tag);
+      return version > 0L ? version : null;
+    } catch(NumberFormatException e) {
+      return null;
+    }
+  }
+  
+}
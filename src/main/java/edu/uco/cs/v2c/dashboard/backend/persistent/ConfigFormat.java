@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+/**
+ * The format in which configs are written to the database. Configs in either
+ * format can always be read.
+ * 
+ * @author Caleb L. Power
+ */
+public enum ConfigFormat {
+  
+  /**
+   * Configs are stored as embedded BSON documents. Configs that are still
+   * stored as strings are migrated the first time they're read. Configs with
+   * keys that contain dots or start with a dollar sign are still stored as
+   * strings, since older versions of MongoDB don't accept such field names.
+   */
+  DOCUMENT,
+  
+  /**
+   * Configs are stored as serialized JSON strings, which is how nodes that
+   * predate {@link ConfigFormat#DOCUMENT} expect to find them.
+   */
+  STRING
+  
+}
@@ -15,16 +15,52 @@
  */
 package edu.uco.cs.v2c.dashboard.backend.persistent;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.bson.BsonType;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.json.JSONObject;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.MongoServerException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ReadPreference;
+import com.mongodb.TaggableReadPreference;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+
+import edu.uco.cs.v2c.dashboard.backend.cache.ExpiringCache;
+import edu.uco.cs.v2c.dashboard.backend.log.Logger;
 
 /**
  * A driver to interact with MongoDB.
@@ -35,61 +71,364 @@ public class Database {
   
   private static String DB_NAME = "v2cDashboard";
   private static String COLLECTION_CONFIG = "config";
+  private static String COLLECTION_REVOCATION = "revocation";
+  private static String COLLECTION_SESSION = "session";
   private static String COLLECTION_USER = "user";
+  private static UUID GLOBAL_CONFIG_KEY = new UUID(0L, 0L); // the nil UUID never belongs to a user
+  
+  private static String LOG_LABEL = "DATABASE";
+  private static Pattern DUPLICATE_KEY_PATTERN = Pattern.compile("index: (\\S+)_1 dup key");
+  private static ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+  private static UpdateOptions UPDATE_UPSERT = new UpdateOptions().upsert(true);
+  private static int MAX_RECENT_WRITES = 10000;
   
   private MongoClient mongoClient = null;
+  private MongoDatabase mongoDatabase = null;
+  private MongoCollection<Document> configCollection = null;
+  private MongoCollection<Document> revocationCollection = null;
+  private MongoCollection<Document> sessionCollection = null;
+  private MongoCollection<Document> userCollection = null;
+  private com.mongodb.reactivestreams.client.MongoClient asyncMongoClient = null; // for non-blocking reads
+  private com.mongodb.reactivestreams.client.MongoCollection<Document> asyncConfigCollection = null;
+  private MongoCollection<Document> configReadCollection = null; // may read from secondaries
+  private com.mongodb.reactivestreams.client.MongoCollection<Document> asyncConfigReadCollection = null;
+  private long readYourWritesWindow = 0L;
+  private Map<UUID, Long> recentConfigWrites = new ConcurrentHashMap<>(); // when configs may be read from secondaries again
+  private volatile long recentUnknownWrite = 0L;
+  private ConfigFormat configFormat = null;
+  private ExpiringCache<UUID, Config> configCache = null;
+  private ExpiringCache<UUID, User> userCache = null;
+  private ChangeStreamWatcher changeStreamWatcher = null;
+  private List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+  private ChangeListener changeDispatcher = new ChangeDispatcher();
   
   /**
    * Instantiates the database.
    * 
-   * @param connection the host and port of the MongoDB server
+   * @param settings the settings with which to connect to MongoDB
+   * @param writeConcern the acknowledgement required of MongoDB for writes
+   * @param configFormat the format in which configs should be written
+   * @param configCacheSize the maximum number of configs to keep in memory
+   * @param configCacheTTL the number of milliseconds a cached config remains valid
+   * @param userCacheSize the maximum number of user profiles to keep in memory
+   * @param userCacheTTL the number of milliseconds a cached user profile remains valid
+   * @param configReadPreference where configs are read from, unless they were
+   *        written recently; everything else is always read from the primary
+   * @throws IllegalArgumentException if configs are read from secondaries
+   *         without a max staleness
+   * @throws IllegalStateException if the indexes that enforce uniqueness could
+   *         not be created
+   */
+  public Database(MongoClientSettings settings, WriteConcern writeConcern, ConfigFormat configFormat,
+      int configCacheSize, long configCacheTTL, int userCacheSize, long userCacheTTL,
+      ReadPreference configReadPreference) {
+    // secondaries may lag by as much as the max staleness, and by any amount at all if it's unbounded
+    if(configReadPreference instanceof TaggableReadPreference) {
+      Long maxStaleness = ((TaggableReadPreference)configReadPreference).getMaxStaleness(TimeUnit.MILLISECONDS);
+      if(maxStaleness == null)
+        throw new IllegalArgumentException("Reading configs from secondaries requires a max staleness.");
+      this.readYourWritesWindow = maxStaleness;
+    }
+    
+    // the handles are cheap to keep and immutable, so they're shared by every call
+    this.mongoClient = MongoClients.create(settings);
+    this.mongoDatabase = mongoClient.getDatabase(DB_NAME)
+        .withWriteConcern(writeConcern)
+        .withReadPreference(ReadPreference.primary());
+    this.configCollection = mongoDatabase.getCollection(COLLECTION_CONFIG);
+    this.revocationCollection = mongoDatabase.getCollection(COLLECTION_REVOCATION);
+    this.sessionCollection = mongoDatabase.getCollection(COLLECTION_SESSION);
+    this.userCollection = mongoDatabase.getCollection(COLLECTION_USER);
+    this.asyncMongoClient = com.mongodb.reactivestreams.client.MongoClients.create(settings);
+    this.asyncConfigCollection = asyncMongoClient.getDatabase(DB_NAME)
+        .withWriteConcern(writeConcern)
+        .withReadPreference(ReadPreference.primary())
+        .getCollection(COLLECTION_CONFIG);
+    this.configReadCollection = configCollection.withReadPreference(configReadPreference);
+    this.asyncConfigReadCollection = asyncConfigCollection.withReadPreference(configReadPreference);
+    
+    this.configFormat = configFormat;
+    this.configCache = new ExpiringCache<>(configCacheSize, configCacheTTL);
+    this.userCache = new ExpiringCache<>(userCacheSize, userCacheTTL);
+    
+    try {
+      ensureIndexes();
+    } catch(IllegalStateException e) {
+      asyncMongoClient.close();
+      mongoClient.close();
+      throw e;
+    }
+    
+    addChangeListener(new ChangeListener() {
+      @Override public void onGlobalConfigChange() {
+        markWritten(GLOBAL_CONFIG_KEY);
+        configCache.invalidate(GLOBAL_CONFIG_KEY);
+      }
+      
+      @Override public void onUserConfigChange(UUID uid) {
+        markWritten(uid);
+        configCache.invalidate(uid);
+      }
+      
+      @Override public void onUserProfileChange(UUID uid) {
+        userCache.invalidate(uid);
+      }
+      
+      @Override public void onUnknownChange() {
+        if(readYourWritesWindow > 0L) recentUnknownWrite = System.currentTimeMillis() + readYourWritesWindow;
+        configCache.invalidateAll();
+        userCache.invalidateAll();
+      }
+    });
+  }
+  
+  /**
+   * Creates the indexes that lookups rely on, if they don't exist already.
+   * The unique indexes on the user collection double as the authority on
+   * whether or not an email, username, or user ID is already taken, so the
+   * database can't be used without them; this usually fails because data
+   * written before the indexes existed has duplicates, which have to be
+   * removed by hand.
+   * 
+   * @throws IllegalStateException if the indexes could not be created
+   */
+  private void ensureIndexes() {
+    try {
+      userCollection.createIndex(Indexes.ascending("uid"), new IndexOptions().unique(true));
+      userCollection.createIndex(Indexes.ascending("email"), new IndexOptions().unique(true));
+      userCollection.createIndex(Indexes.ascending("username"), new IndexOptions().unique(true));
+      
+      // the global config has no uid, and there's only ever one of it
+      configCollection.createIndex(Indexes.ascending("uid"), new IndexOptions()
+          .unique(true)
+          .partialFilterExpression(Filters.exists("uid")));
+      configCollection.createIndex(Indexes.ascending("global"), new IndexOptions()
+          .unique(true)
+          .partialFilterExpression(Filters.eq("global", true)));
+      
+      // MongoDB deletes sessions on its own once they've expired
+      sessionCollection.createIndex(Indexes.ascending("key"), new IndexOptions().unique(true));
+      sessionCollection.createIndex(Indexes.ascending("uid"), new IndexOptions().unique(true));
+      sessionCollection.createIndex(Indexes.ascending("expires"), new IndexOptions().expireAfter(0L, TimeUnit.SECONDS));
+      revocationCollection.createIndex(Indexes.ascending("revoked"));
+      revocationCollection.createIndex(Indexes.ascending("expires"), new IndexOptions().expireAfter(0L, TimeUnit.SECONDS));
+    } catch(MongoException e) {
+      throw new IllegalStateException("Could not create indexes (remove any duplicate users, configs, or sessions first): "
+          + e.getMessage(), e);
+    }
+  }
+  
+  /**
+   * Registers a listener to be notified whenever persisted data changes. If
+   * {@link Database#watchChanges(File)} has been invoked, the listener will
+   * also be notified of changes made by other nodes.
+   * 
+   * @param listener the listener
+   */
+  public void addChangeListener(ChangeListener listener) {
+    changeListeners.add(listener);
+  }
+  
+  /**
+   * Starts watching the database for changes made by any node so that
+   * in-process caches remain coherent across the fleet. Requires MongoDB to
+   * be running as a replica set.
+   * 
+   * @param resumeTokenFile the file in which to persist the change stream's
+   *        resume token, or <code>null</code> to keep it in memory only
    */
-  public Database(String connection) {
-    this.mongoClient = MongoClients.create("mongodb://" + connection);
+  public void watchChanges(File resumeTokenFile) {
+    if(changeStreamWatcher != null) return;
+    changeStreamWatcher = new ChangeStreamWatcher(
+        mongoDatabase,
+        COLLECTION_CONFIG,
+        COLLECTION_USER,
+        changeDispatcher,
+        resumeTokenFile);
+    changeStreamWatcher.start();
+  }
+  
+  /**
+   * Stops watching the database for changes, if it was being watched.
+   */
+  public void halt() {
+    if(changeStreamWatcher != null) changeStreamWatcher.halt();
+    changeStreamWatcher = null;
   }
   
   /**
    * Retrieves the global configuration.
    * 
-   * @return a JSON object representing the global config
+   * @return a snapshot of the global config
+   */
+  public Config getGlobalConfig() {
+    return configCache.get(GLOBAL_CONFIG_KEY, k -> loadGlobalConfig());
+  }
+  
+  /**
+   * Retrieves the global configuration without blocking the calling thread
+   * on the database.
+   * 
+   * @return a stage that completes with a snapshot of the global config
    */
-  public JSONObject getGlobalConfig() {
-    MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-    MongoCollection<Document> collection = database.getCollection(COLLECTION_CONFIG);
-    Document document = collection.find(Filters.eq("global", true)).first();
+  public CompletionStage<Config> getGlobalConfigAsync() {
+    return configCache.getAsync(GLOBAL_CONFIG_KEY, this::loadConfigAsync);
+  }
+  
+  private Config loadGlobalConfig() {
+    Document document = configReads(GLOBAL_CONFIG_KEY).find(Filters.eq("global", true)).first();
     if(document == null)
-      return new JSONObject();
-    else return new JSONObject(document.getString("config"));
+      return new Config(new JSONObject(), 0L);
+    else return new Config(readConfig(document), readVersion(document));
   }
   
   /**
    * Sets the global configuration.
    * 
    * @param config the global configuration
+   * @return the new version of the global configuration
+   */
+  public long setGlobalConfig(JSONObject config) {
+    long version = storeConfig(Filters.eq("global", true), new Document("global", true), config, null);
+    changeDispatcher.onGlobalConfigChange();
+    return version;
+  }
+  
+  /**
+   * Sets the global configuration, but only if it hasn't been changed since
+   * some known version.
+   * 
+   * @param config the global configuration
+   * @param expectedVersion the version that the caller last saw
+   * @return the new version of the global configuration
+   * @throws VersionMismatchException if the global configuration is no
+   *         longer at the expected version
+   */
+  public long setGlobalConfig(JSONObject config, long expectedVersion) throws VersionMismatchException {
+    Long version = storeConfig(Filters.eq("global", true), new Document("global", true), config, expectedVersion);
+    if(version == null) throw new VersionMismatchException(expectedVersion);
+    changeDispatcher.onGlobalConfigChange();
+    return version;
+  }
+  
+  /**
+   * Partially updates the global configuration using JSON Merge Patch
+   * (RFC 7396) semantics.
+   * 
+   * @param patch the merge patch
    */
-  public void setGlobalConfig(JSONObject config) {
-    MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-    MongoCollection<Document> collection = database.getCollection(COLLECTION_CONFIG);
-    Document document = new Document("global", true)
-        .append("config", config.toString());
-    if(collection.find(Filters.eq("global", true)).first() == null)
-      collection.insertOne(document);
-    else
-      collection.replaceOne(Filters.eq("global", true), document);
+  public void patchGlobalConfig(JSONObject patch) {
+    if(patchConfig(Filters.eq("global", true), new Document("global", true), patch))
+      changeDispatcher.onGlobalConfigChange();
   }
   
   /**
    * Retrieves configuration data for a particular user.
    * 
    * @param uid the unique identifier of the user
-   * @return the JSON object describing the user's configuration data
+   * @return a snapshot of the user's configuration data
    */
-  public JSONObject getUserConfig(UUID uid) {
-    MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-    MongoCollection<Document> collection = database.getCollection(COLLECTION_CONFIG);
-    Document document = collection.find(Filters.eq("uid", uid.toString())).first();
-    if(document != null) return new JSONObject(document.getString("config"));
-    return new JSONObject();
+  public Config getUserConfig(UUID uid) {
+    return configCache.get(uid, this::loadUserConfig);
+  }
+  
+  /**
+   * Retrieves configuration data for a particular user without blocking the
+   * calling thread on the database.
+   * 
+   * @param uid the unique identifier of the user
+   * @return a stage that completes with a snapshot of the user's
+   *         configuration data
+   */
+  public CompletionStage<Config> getUserConfigAsync(UUID uid) {
+    return configCache.getAsync(uid, this::loadConfigAsync);
+  }
+  
+  private Config loadUserConfig(UUID uid) {
+    Document document = configReads(uid).find(Filters.eq("uid", uid.toString())).first();
+    if(document != null) return new Config(readConfig(document), readVersion(document));
+    return new Config(new JSONObject(), 0L);
+  }
+  
+  /**
+   * Retrieves the global configuration along with a particular user's
+   * configuration data. Whichever of the two aren't cached are fetched with a
+   * single query.
+   * 
+   * @param uid the unique identifier of the user
+   * @return a stage that completes with an array holding a snapshot of the
+   *         global config followed by a snapshot of the user's config
+   */
+  public CompletionStage<Config[]> getConfigsAsync(UUID uid) {
+    return configCache.getAllAsync(Arrays.asList(GLOBAL_CONFIG_KEY, uid), this::loadConfigsAsync)
+        .thenApply(configs -> new Config[] { configs.get(GLOBAL_CONFIG_KEY), configs.get(uid) });
+  }
+  
+  private CompletionStage<Config> loadConfigAsync(UUID key) {
+    com.mongodb.reactivestreams.client.MongoCollection<Document> collection = recentlyWritten(key)
+        ? asyncConfigCollection : asyncConfigReadCollection;
+    return PublisherFuture.first(collection.find(toConfigFilter(key)).first())
+        .thenApply(document -> document == null ? new Config(new JSONObject(), 0L) : toConfig(document));
+  }
+  
+  private CompletionStage<Map<UUID, Config>> loadConfigsAsync(Set<UUID> keys) {
+    List<Bson> filters = new ArrayList<>();
+    com.mongodb.reactivestreams.client.MongoCollection<Document> collection = asyncConfigReadCollection;
+    for(UUID key : keys) {
+      filters.add(toConfigFilter(key));
+      if(recentlyWritten(key)) collection = asyncConfigCollection;
+    }
+    
+    return PublisherFuture.all(collection.find(Filters.or(filters))).thenApply(documents -> {
+      Map<UUID, Config> configs = new HashMap<>();
+      for(Document document : documents)
+        configs.put(document.getBoolean("global", false)
+            ? GLOBAL_CONFIG_KEY : UUID.fromString(document.getString("uid")), toConfig(document));
+      for(UUID key : keys) // configs that haven't been written yet are empty
+        configs.putIfAbsent(key, new Config(new JSONObject(), 0L));
+      return configs;
+    });
+  }
+  
+  private static Bson toConfigFilter(UUID key) {
+    return GLOBAL_CONFIG_KEY.equals(key) ? Filters.eq("global", true) : Filters.eq("uid", key.toString());
+  }
+  
+  /**
+   * Picks where to read a config from. Configs written recently, by this node
+   * or any other that it has heard from, are read from the primary so that
+   * a lagging secondary can't hand back (and get cached) the old version.
+   */
+  private MongoCollection<Document> configReads(UUID key) {
+    return recentlyWritten(key) ? configCollection : configReadCollection;
+  }
+  
+  private boolean recentlyWritten(UUID key) {
+    if(readYourWritesWindow == 0L) return false;
+    long now = System.currentTimeMillis();
+    if(now < recentUnknownWrite) return true;
+    Long until = recentConfigWrites.get(key);
+    return until != null && now < until;
+  }
+  
+  private void markWritten(UUID key) {
+    if(readYourWritesWindow == 0L) return;
+    long now = System.currentTimeMillis();
+    recentConfigWrites.put(key, now + readYourWritesWindow);
+    if(recentConfigWrites.size() > MAX_RECENT_WRITES)
+      recentConfigWrites.values().removeIf(until -> until <= now);
+  }
+  
+  private Config toConfig(Document document) {
+    JSONObject config = parseConfig(document.get("config"));
+    if(needsMigration(document, config))
+      PublisherFuture.first(asyncConfigCollection.updateOne(
+          migrationFilter(document),
+          migrationUpdate(config))).exceptionally(e -> {
+            Logger.onError(LOG_LABEL, "Could not migrate config: " + e.getMessage());
+            return null;
+          });
+    return new Config(config, readVersion(document));
   }
   
   /**
@@ -97,35 +436,241 @@ public class Database {
    * 
    * @param uid the unique identifier of the user
    * @param config the JSON object describing the user's configuration data
+   * @return the new version of the user's configuration data
    */
-  public void setUserConfig(UUID uid, JSONObject config) {
-    MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-    MongoCollection<Document> collection = database.getCollection(COLLECTION_CONFIG);
-    Document document = new Document("global", false)
-        .append("uid", uid.toString())
-        .append("config", config.toString());
-    if(collection.find(Filters.eq("uid", uid.toString())).first() == null)
-      collection.insertOne(document);
-    else
-      collection.replaceOne(Filters.eq("uid", uid.toString()), document);
+  public long setUserConfig(UUID uid, JSONObject config) {
+    long version = storeConfig(Filters.eq("uid", uid.toString()),
+        new Document("global", false).append("uid", uid.toString()), config, null);
+    changeDispatcher.onUserConfigChange(uid);
+    return version;
   }
   
   /**
-   * Retrieves a particular user's profile by ID if it exists.
+   * Sets the configuration data for a particular user, but only if it hasn't
+   * been changed since some known version.
+   * 
+   * @param uid the unique identifier of the user
+   * @param config the JSON object describing the user's configuration data
+   * @param expectedVersion the version that the caller last saw
+   * @return the new version of the user's configuration data
+   * @throws VersionMismatchException if the user's configuration data is no
+   *         longer at the expected version
+   */
+  public long setUserConfig(UUID uid, JSONObject config, long expectedVersion) throws VersionMismatchException {
+    Long version = storeConfig(Filters.eq("uid", uid.toString()),
+        new Document("global", false).append("uid", uid.toString()), config, expectedVersion);
+    if(version == null) throw new VersionMismatchException(expectedVersion);
+    changeDispatcher.onUserConfigChange(uid);
+    return version;
+  }
+  
+  /**
+   * Partially updates the configuration data for a particular user using
+   * JSON Merge Patch (RFC 7396) semantics.
+   * 
+   * @param uid the unique identifier of the user
+   * @param patch the merge patch
+   */
+  public void patchUserConfig(UUID uid, JSONObject patch) {
+    if(patchConfig(Filters.eq("uid", uid.toString()),
+        new Document("global", false).append("uid", uid.toString()), patch))
+      changeDispatcher.onUserConfigChange(uid);
+  }
+  
+  /**
+   * Applies a merge patch to a config. Whenever possible, the patch is
+   * translated into a single update of just the affected fields. That only
+   * works if the config exists and is stored as a document, and if every
+   * object that the patch removes keys from is an object already, since
+   * MongoDB quietly skips removals that it can't walk to. Anything else (such
+   * as keys that aren't valid field paths, configs stored as strings, or
+   * non-objects being patched as objects) falls back to replacing the whole
+   * config.
+   * 
+   * @return <code>false</code> if the patch was empty, so nothing was written
+   */
+  private boolean patchConfig(Bson filter, Document skeleton, JSONObject patch) {
+    if(patch.isEmpty()) return false;
+    
+    List<Bson> updates = new ArrayList<>();
+    List<Bson> conditions = new ArrayList<>();
+    if(configFormat == ConfigFormat.DOCUMENT && toUpdates("config", patch, updates, conditions)) {
+      conditions.add(0, filter);
+      updates.add(Updates.inc("version", 1L));
+      try {
+        UpdateResult result = configCollection.updateOne(Filters.and(conditions), Updates.combine(updates));
+        if(!result.wasAcknowledged() || result.getMatchedCount() > 0L) return true;
+      } catch(MongoWriteException e) { } // a non-object was patched as an object, so fall back
+    }
+    
+    // compare-and-swap on the version until nobody else wrote in between
+    Long version = null;
+    do {
+      Document document = configCollection.find(filter).first();
+      JSONObject config = mergePatch(
+          document == null ? new JSONObject() : parseConfig(document.get("config")),
+          patch);
+      version = storeConfig(filter, skeleton, config, document == null ? 0L : readVersion(document));
+    } while(version == null);
+    return true;
+  }
+  
+  /**
+   * Writes a whole config and bumps its version in a single round trip. If an
+   * expected version is provided, the write only happens if the config is
+   * still at that version. Version zero denotes a config that doesn't exist
+   * or that was written before configs were versioned.
+   * 
+   * @return the new version, or <code>null</code> if the expected version didn't match
+   */
+  private Long storeConfig(Bson filter, Document skeleton, JSONObject config, Long expectedVersion) {
+    Bson condition = filter;
+    if(expectedVersion != null)
+      condition = Filters.and(filter, expectedVersion == 0L
+          ? Filters.in("version", Arrays.asList(0L, null))
+          : Filters.eq("version", expectedVersion));
+    
+    List<Bson> updates = new ArrayList<>();
+    updates.add(Updates.set("config", toStoredConfig(config)));
+    updates.add(Updates.inc("version", 1L));
+    for(String field : skeleton.keySet())
+      updates.add(Updates.setOnInsert(field, skeleton.get(field)));
+    
+    try {
+      Document document = configCollection.findOneAndUpdate(condition, Updates.combine(updates),
+          new FindOneAndUpdateOptions()
+              .upsert(expectedVersion == null || expectedVersion == 0L)
+              .projection(Projections.include("version"))
+              .returnDocument(ReturnDocument.AFTER));
+      return document == null ? null : readVersion(document);
+    } catch(MongoServerException e) { // someone else created the document first
+      if(expectedVersion == null || ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) throw e;
+      return null;
+    }
+  }
+  
+  private static long readVersion(Document document) {
+    Object version = document.get("version");
+    return version instanceof Number ? ((Number)version).longValue() : 0L;
+  }
+  
+  /**
+   * Translates a merge patch into field-level updates. Keys are only removed
+   * from objects that are required to be objects already, by way of the
+   * conditions that the update has to be filtered on.
+   * 
+   * @param path the path of the object being patched
+   * @param patch the merge patch
+   * @param updates receives the updates
+   * @param conditions receives the conditions that the update only works under
+   * @return <code>false</code> if the patch can't be expressed as updates
+   */
+  static boolean toUpdates(String path, JSONObject patch, List<Bson> updates, List<Bson> conditions) {
+    boolean removes = false;
+    for(String key : patch.keySet()) {
+      if(key.isEmpty() || key.contains(".") || key.startsWith("$")) return false;
+      String field = path + '.' + key;
+      Object value = patch.get(key);
+      if(value == JSONObject.NULL) {
+        updates.add(Updates.unset(field));
+        removes = true;
+      } else if(value instanceof JSONObject) {
+        // an empty object only sometimes changes the target, which can't be known in advance
+        if(((JSONObject)value).isEmpty() || !toUpdates(field, (JSONObject)value, updates, conditions)) return false;
+      } else if(DocumentConverter.isStorable(value))
+        updates.add(Updates.set(field, DocumentConverter.toBSONValue(value)));
+      else return false;
+    }
+    
+    // the config itself always has to be a document, since it might still be a string
+    if(removes || path.indexOf('.') < 0) conditions.add(Filters.type(path, BsonType.DOCUMENT));
+    return true;
+  }
+  
+  /**
+   * Applies a merge patch to a JSON object, per RFC 7396.
+   * 
+   * @param target the object being patched, which is modified in place
+   * @param patch the merge patch
+   * @return the patched object
+   */
+  static JSONObject mergePatch(JSONObject target, JSONObject patch) {
+    for(String key : patch.keySet()) {
+      Object value = patch.get(key);
+      if(value == JSONObject.NULL)
+        target.remove(key);
+      else if(value instanceof JSONObject) {
+        Object existing = target.opt(key);
+        target.put(key, mergePatch(
+            existing instanceof JSONObject ? (JSONObject)existing : new JSONObject(),
+            (JSONObject)value));
+      } else target.put(key, value);
+    }
+    return target;
+  }
+  
+  // configs with keys that can't be field names are kept as strings, whatever the format
+  private Object toStoredConfig(JSONObject config) {
+    return configFormat == ConfigFormat.DOCUMENT && DocumentConverter.isStorable(config)
+        ? DocumentConverter.toDocument(config) : config.toString();
+  }
+  
+  /**
+   * Reads the config out of a document in the config collection, whichever
+   * format it's in. Configs that are still stored as strings are converted to
+   * embedded documents in place unless configs are meant to be stored as
+   * strings, or unless they have keys that can't be stored as field names.
+   */
+  private JSONObject readConfig(Document document) {
+    JSONObject json = parseConfig(document.get("config"));
+    if(needsMigration(document, json)) try {
+      configCollection.updateOne(migrationFilter(document), migrationUpdate(json));
+    } catch(MongoException e) {
+      Logger.onError(LOG_LABEL, "Could not migrate config: " + e.getMessage());
+    }
+    return json;
+  }
+  
+  private boolean needsMigration(Document document, JSONObject config) {
+    return document.get("config") instanceof String && configFormat == ConfigFormat.DOCUMENT
+        && DocumentConverter.isStorable(config);
+  }
+  
+  // only migrate if nobody has written a new config in the meantime
+  private static Bson migrationFilter(Document document) {
+    return Filters.and(
+        Filters.eq("_id", document.get("_id")),
+        Filters.eq("config", document.get("config")));
+  }
+  
+  private static Bson migrationUpdate(JSONObject config) {
+    return Updates.set("config", DocumentConverter.toDocument(config));
+  }
+  
+  private static JSONObject parseConfig(Object config) {
+    if(config instanceof Document) return DocumentConverter.toJSONObject((Document)config);
+    if(config instanceof String) return new JSONObject((String)config);
+    return new JSONObject();
+  }
+  
+  /**
+   * Retrieves a particular user's profile by ID if it exists. Profiles are
+   * cached, so the returned profile may be shared with other callers and must
+   * not be modified; use {@link User#copy()} to get one that can be.
    * 
    * @param uid the unique identifier of the user
    * @return the resulting user, or <code>null</code> if no such user exists
    */
   public User getUserProfileByID(UUID uid) {
-    MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-    MongoCollection<Document> collection = database.getCollection(COLLECTION_USER);
-    Document document = collection.find(Filters.eq("uid", uid.toString())).first();
-    if(document != null) return new User()
-        .setEmail(document.getString("email"))
-        .setUsername(document.getString("username"))
-        .setPasswordHash(document.getString("phash"))
-        .setID(UUID.fromString(document.getString("uid")));
-    return null;
+    return userCache.get(uid, k -> {
+      Document document = userCollection.find(Filters.eq("uid", k.toString())).first();
+      if(document != null) return new User()
+          .setEmail(document.getString("email"))
+          .setUsername(document.getString("username"))
+          .setPasswordHash(document.getString("phash"))
+          .setID(UUID.fromString(document.getString("uid")));
+      return null;
+    });
   }
   
   /**
@@ -135,9 +680,7 @@ public class Database {
    * @return the resulting user, or <code>null</code> if no such user exists
    */
   public User getUserProfileByEmail(String email) {
-    MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-    MongoCollection<Document> collection = database.getCollection(COLLECTION_USER);
-    Document document = collection.find(Filters.eq("email", email)).first();
+    Document document = userCollection.find(Filters.eq("email", email)).first();
     if(document != null) return new User()
         .setEmail(document.getString("email"))
         .setUsername(document.getString("username"))
@@ -153,9 +696,7 @@ public class Database {
    * @return the resulting user, or <code>null</code> if no such user exists
    */
   public User getUserProfileByUsername(String username) {
-    MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-    MongoCollection<Document> collection = database.getCollection(COLLECTION_USER);
-    Document document = collection.find(Filters.eq("username", username)).first();
+    Document document = userCollection.find(Filters.eq("username", username)).first();
     if(document != null) return new User()
         .setEmail(document.getString("email"))
         .setUsername(document.getString("username"))
@@ -164,22 +705,173 @@ public class Database {
     return null;
   }
   
+  /**
+   * Creates a new user profile. Fails if any user already has the same ID,
+   * email, or username.
+   * 
+   * @param user the new user profile
+   * @throws DuplicateEntryException if the ID, email, or username is taken
+   */
+  public void createUserProfile(User user) throws DuplicateEntryException {
+    try {
+      userCollection.insertOne(new Document("uid", user.getID().toString())
+          .append("email", user.getEmail())
+          .append("username", user.getUsername())
+          .append("phash", user.getPasswordHash()));
+    } catch(MongoWriteException e) {
+      throw toDuplicateEntryException(e);
+    }
+    changeDispatcher.onUserProfileChange(user.getID());
+    userCache.put(user.getID(), user.copy()); // write through, after the invalidation above
+  }
+  
   /**
    * Replaces a user's profile, or creates one if it does not already exist.
    * 
    * @param user the new user profile
+   * @throws DuplicateEntryException if the email or username belongs to another user
    */
-  public void setUserProfile(User user) {
-    MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-    MongoCollection<Document> collection = database.getCollection(COLLECTION_USER);
+  public void setUserProfile(User user) throws DuplicateEntryException {
     String uid = user.getID().toString();
     Document document = new Document("uid", uid)
         .append("email", user.getEmail())
         .append("username", user.getUsername())
         .append("phash", user.getPasswordHash());
-    if(collection.find(Filters.eq("uid", uid)).first() == null)
-      collection.insertOne(document);
-    else collection.replaceOne(Filters.eq("uid", uid), document);
+    try {
+      userCollection.replaceOne(Filters.eq("uid", uid), document, UPSERT);
+    } catch(MongoWriteException e) {
+      throw toDuplicateEntryException(e);
+    }
+    changeDispatcher.onUserProfileChange(user.getID());
+    userCache.put(user.getID(), user.copy()); // write through, after the invalidation above
   }
-
+  
+  /**
+   * Replaces a user's password hash, but only if it hasn't changed since the
+   * caller last read it. This lets a hash be upgraded in the background
+   * without clobbering a password change that happened in the meantime.
+   * 
+   * @param uid the user's unique ID
+   * @param expectedHash the hash that the caller expects to replace
+   * @param newHash the new hash
+   * @return <code>true</code> iff the hash was replaced
+   */
+  public boolean setPasswordHash(UUID uid, String expectedHash, String newHash) {
+    UpdateResult result = userCollection.updateOne(
+        Filters.and(Filters.eq("uid", uid.toString()), Filters.eq("phash", expectedHash)),
+        Updates.set("phash", newHash));
+    boolean replaced = !result.wasAcknowledged() || result.getModifiedCount() > 0L; // assume the best if we can't know
+    if(replaced) changeDispatcher.onUserProfileChange(uid);
+    return replaced;
+  }
+  
+  /**
+   * Retrieves a session that hasn't expired.
+   * 
+   * @param sessionKey the session key
+   * @return the session, or <code>null</code> if it doesn't exist or has expired
+   */
+  public SessionRecord getSession(String sessionKey) {
+    Document document = sessionCollection.find(Filters.and(
+        Filters.eq("key", sessionKey),
+        Filters.gt("expires", new Date()))).first();
+    return document == null ? null : new SessionRecord(
+        document.getString("key"),
+        UUID.fromString(document.getString("uid")),
+        document.getDate("expires").getTime());
+  }
+  
+  /**
+   * Saves a session, replacing any session that the user already had.
+   * 
+   * @param session the session
+   */
+  public void setSession(SessionRecord session) {
+    String uid = session.getUID().toString();
+    sessionCollection.replaceOne(Filters.eq("uid", uid), new Document("key", session.getSessionKey())
+        .append("uid", uid)
+        .append("expires", new Date(session.getExpiration())), UPSERT);
+  }
+  
+  /**
+   * Pushes back the expiration of a session that hasn't expired.
+   * 
+   * @param sessionKey the session key
+   * @param expiration the new expiration time, in milliseconds since the epoch
+   * @return <code>true</code> unless the session no longer exists
+   */
+  public boolean touchSession(String sessionKey, long expiration) {
+    UpdateResult result = sessionCollection.updateOne(
+        Filters.and(Filters.eq("key", sessionKey), Filters.gt("expires", new Date())),
+        Updates.max("expires", new Date(expiration)));
+    return !result.wasAcknowledged() || result.getMatchedCount() > 0L;
+  }
+  
+  /**
+   * Deletes a session.
+   * 
+   * @param sessionKey the session key
+   */
+  public void deleteSession(String sessionKey) {
+    sessionCollection.deleteOne(Filters.eq("key", sessionKey));
+  }
+  
+  /**
+   * Records that a stateless session was revoked. The record is deleted once
+   * the session's cookie would have expired anyway.
+   * 
+   * @param sessionKey the session key
+   * @param expiration the time at which the cookie expires, in milliseconds
+   *        since the epoch
+   */
+  public void revokeSession(String sessionKey, long expiration) {
+    revocationCollection.insertOne(new Document("key", sessionKey)
+        .append("revoked", new Date())
+        .append("expires", new Date(expiration)));
+  }
+  
+  /**
+   * Retrieves the keys of the stateless sessions revoked since some time.
+   * 
+   * @param since the earliest revocation time of interest, in milliseconds
+   *        since the epoch
+   * @return the keys of the revoked sessions
+   */
+  public List<String> getRevokedSessions(long since) {
+    List<String> sessionKeys = new ArrayList<>();
+    for(Document document : revocationCollection.find(Filters.gte("revoked", new Date(since)))
+        .projection(Projections.include("key")))
+      sessionKeys.add(document.getString("key"));
+    return sessionKeys;
+  }
+  
+  private static DuplicateEntryException toDuplicateEntryException(MongoWriteException e) {
+    if(ErrorCategory.fromErrorCode(e.getError().getCode()) != ErrorCategory.DUPLICATE_KEY) throw e;
+    Matcher matcher = DUPLICATE_KEY_PATTERN.matcher(e.getError().getMessage());
+    return new DuplicateEntryException(matcher.find() ? matcher.group(1) : null, e);
+  }
+  
+  /**
+   * Relays changes, local or remote, to every registered listener.
+   */
+  private class ChangeDispatcher implements ChangeListener {
+    
+    @Override public void onGlobalConfigChange() {
+      changeListeners.forEach(ChangeListener::onGlobalConfigChange);
+    }
+    
+    @Override public void onUserConfigChange(UUID uid) {
+      changeListeners.forEach(l -> l.onUserConfigChange(uid));
+    }
+    
+    @Override public void onUserProfileChange(UUID uid) {
+      changeListeners.forEach(l -> l.onUserProfileChange(uid));
+    }
+    
+    @Override public void onUnknownChange() {
+      changeListeners.forEach(ChangeListener::onUnknownChange);
+    }
+    
+  }
+  
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Converts between JSON objects and BSON documents without round-tripping
+ * through a serialized string.
+ * 
+ * @author Caleb L. Power
+ */
+public class DocumentConverter {
+  
+  /**
+   * Converts a JSON object into a BSON document.
+   * 
+   * @param json the JSON object
+   * @return a BSON document with the same structure
+   */
+  public static Document toDocument(JSONObject json) {
+    Document document = new Document();
+    for(String key : json.keySet())
+      document.append(key, toBSONValue(json.get(key)));
+    return document;
+  }
+  
+  /**
+   * Converts a BSON document into a JSON object.
+   * 
+   * @param document the BSON document
+   * @return a JSON object with the same structure
+   */
+  public static JSONObject toJSONObject(Document document) {
+    JSONObject json = new JSONObject();
+    for(Map.Entry<String, Object> entry : document.entrySet())
+      json.put(entry.getKey(), toJSONValue(entry.getValue()));
+    return json;
+  }
+  
+  /**
+   * Determines whether or not a JSON value can be stored as BSON as-is. Keys
+   * that contain dots or start with a dollar sign aren't valid field names
+   * for MongoDB prior to 5.0, so values with such keys anywhere inside of
+   * them have to be stored some other way.
+   * 
+   * @param value some value retrieved from a JSON object or array
+   * @return <code>true</code> if every key in the value is a valid field name
+   */
+  public static boolean isStorable(Object value) {
+    if(value instanceof JSONObject) {
+      JSONObject json = (JSONObject)value;
+      for(String key : json.keySet())
+        if(key.contains(".") || key.startsWith("$") || !isStorable(json.get(key))) return false;
+    } else if(value instanceof JSONArray) {
+      JSONArray array = (JSONArray)value;
+      for(int i = 0; i < array.length(); i++)
+        if(!isStorable(array.get(i))) return false;
+    }
+    return true;
+  }
+  
+  /**
+   * Converts a single JSON value into its BSON counterpart.
+   * 
+   * @param value some value retrieved from a JSON object or array
+   * @return the equivalent value for a BSON document
+   */
+  public static Object toBSONValue(Object value) {
+    if(value == null || value == JSONObject.NULL) return null;
+    if(value instanceof JSONObject) return toDocument((JSONObject)value);
+    if(value instanceof JSONArray) {
+      JSONArray array = (JSONArray)value;
+      List<Object> list = new ArrayList<>(array.length());
+      for(int i = 0; i < array.length(); i++)
+        list.add(toBSONValue(array.get(i)));
+      return list;
+    }
+    if(value instanceof BigInteger) return new Decimal128(new BigDecimal((BigInteger)value));
+    if(value instanceof BigDecimal) return new Decimal128((BigDecimal)value);
+    return value;
+  }
+  
+  /**
+   * Converts a single BSON value into its JSON counterpart.
+   * 
+   * @param value some value retrieved from a BSON document or array
+   * @return the equivalent value for a JSON object
+   */
+  public static Object toJSONValue(Object value) {
+    if(value == null) return JSONObject.NULL;
+    if(value instanceof Document) return toJSONObject((Document)value);
+    if(value instanceof List) {
+      JSONArray array = new JSONArray();
+      for(Object element : (List<?>)value)
+        array.put(toJSONValue(element));
+      return array;
+    }
+    if(value instanceof Decimal128) return ((Decimal128)value).bigDecimalValue();
+    if(value instanceof ObjectId) return ((ObjectId)value).toHexString();
+    return value;
+  }
+  
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+/**
+ * Thrown when a write is rejected because it would violate a unique index.
+ * 
+ * @author Caleb L. Power
+ */
+public class DuplicateEntryException extends Exception {
+  private static final long serialVersionUID = -4519390873102285276L;
+  
+  private String field = null;
+  
+  /**
+   * Instantiates the exception.
+   * 
+   * @param field the field whose value already exists, or <code>null</code>
+   *        if it could not be determined
+   * @param cause the exception thrown by the database driver
+   */
+  public DuplicateEntryException(String field, Throwable cause) {
+    super(String.format("Duplicate value for field %1$s.", field), cause);
+    this.field = field;
+  }
+  
+  /**
+   * Retrieves the field whose value already exists.
+   * 
+   * @return the name of the field, or <code>null</code> if it could not be determined
+   */
+  public String getField() {
+    return field;
+  }
+  
+}
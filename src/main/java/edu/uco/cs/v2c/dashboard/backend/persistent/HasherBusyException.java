@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+/**
+ * Thrown when the password hasher is too busy to accept more work.
+ * 
+ * @author Caleb L. Power
+ */
+public class HasherBusyException extends Exception {
+  private static final long serialVersionUID = -4415243706728175730L;
+  
+  /**
+   * Instantiates the exception.
+   * 
+   * @param cause the reason that the work was rejected
+   */
+  public HasherBusyException(Throwable cause) {
+    super("Password hasher is at capacity.", cause);
+  }
+  
+}
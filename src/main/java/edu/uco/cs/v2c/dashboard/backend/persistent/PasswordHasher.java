@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.lambdaworks.crypto.SCryptUtil;
+
+import edu.uco.cs.v2c.dashboard.backend.log.Logger;
+import edu.uco.cs.v2c.dashboard.backend.log.Metrics;
+
+/**
+ * Hashes and verifies passwords on a dedicated, fixed-size pool of threads.
+ * Scrypt is deliberately expensive, so running it on the web server's own
+ * threads would let a burst of logins starve every other request. Work that
+ * can't be queued is rejected outright so that the caller can fail fast.
+ * <p>
+ * New hashes are made with the scrypt parameters given to the hasher. Hashes
+ * made with other parameters can still be verified, and can be upgraded with
+ * {@link PasswordHasher#hashLater(String, Consumer)} once the password is
+ * known to be good.
+ * 
+ * @author Caleb L. Power
+ */
+public class PasswordHasher {
+  
+  private static final String LOG_LABEL = "PASSWORD HASHER";
+  private static final String CALIBRATION_PASSWORD = "calibration";
+  private static final int CALIBRATION_MIN_N = 1 << 10;
+  
+  private int n = 0;
+  private int r = 0;
+  private int p = 0;
+  private String params = null;
+  private ThreadPoolExecutor executor = null;
+  
+  /**
+   * Instantiates the hasher.
+   * 
+   * @param threads the number of passwords that can be hashed at once
+   * @param queueSize the number of passwords that can wait to be hashed
+   * @param n the scrypt CPU cost, which must be a power of two
+   * @param r the scrypt memory cost
+   * @param p the scrypt parallelization
+   */
+  public PasswordHasher(int threads, int queueSize, int n, int r, int p) {
+    if(n < 2 || (n & (n - 1)) != 0)
+      throw new IllegalArgumentException("The scrypt CPU cost must be a power of two greater than one.");
+    if(r < 1 || p < 1)
+      throw new IllegalArgumentException("The scrypt memory cost and parallelization must be positive.");
+    this.n = n;
+    this.r = r;
+    this.p = p;
+    this.params = Long.toString((long)Integer.numberOfTrailingZeros(n) << 16 | r << 8 | p, 16);
+    
+    final AtomicInteger threadCount = new AtomicInteger();
+    executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable, "password-hasher-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    
+    Metrics.registerGauge("hasher.active", executor::getActiveCount);
+    Metrics.registerGauge("hasher.queued", () -> executor.getQueue().size());
+  }
+  
+  /**
+   * Hashes a password.
+   * 
+   * @param password the password
+   * @return the hash, which includes the scrypt parameters and salt
+   * @throws HasherBusyException if the hasher can't take on more work
+   */
+  public String hash(String password) throws HasherBusyException {
+    return run(() -> SCryptUtil.scrypt(password, n, r, p));
+  }
+  
+  /**
+   * Hashes a password in the background, but only if the hasher isn't busy
+   * with other work: there has to be an idle thread and nothing waiting for
+   * one. This is meant for work that can be put off, like upgrading an
+   * outdated hash, so it's dropped rather than queued behind (or ahead of)
+   * logins, or allowed to take the last thread that a login could use.
+   * 
+   * @param password the password
+   * @param callback receives the hash once it's been made
+   */
+  public void hashLater(String password, Consumer<String> callback) {
+    // only take a thread that's idle, or the upgrade would make the next login wait for it
+    if(!executor.getQueue().isEmpty() || executor.getActiveCount() >= executor.getMaximumPoolSize()) {
+      Metrics.increment("hasher.deferred");
+      return;
+    }
+    
+    try {
+      executor.execute(() -> {
+        try {
+          callback.accept(SCryptUtil.scrypt(password, n, r, p));
+        } catch(RuntimeException e) {
+          Logger.onError(LOG_LABEL, "Background hashing failed: " + e.getMessage());
+        }
+      });
+    } catch(RejectedExecutionException e) {
+      Metrics.increment("hasher.deferred");
+    }
+  }
+  
+  /**
+   * Verifies a password against a hash.
+   * 
+   * @param password the password
+   * @param hash the hash
+   * @return <code>true</code> iff the password checks out
+   * @throws HasherBusyException if the hasher can't take on more work
+   * @throws IllegalArgumentException if the hash is malformed
+   */
+  public boolean verify(String password, String hash) throws HasherBusyException {
+    return run(() -> SCryptUtil.check(password, hash));
+  }
+  
+  /**
+   * Determines whether or not a hash was made with the hasher's current scrypt
+   * parameters.
+   * 
+   * @param hash the hash
+   * @return <code>true</code> iff the hash doesn't need to be upgraded
+   */
+  public boolean isCurrent(String hash) {
+    String[] parts = hash.split("\\$");
+    return parts.length == 5 && parts[1].equals("s0") && parts[2].equals(params);
+  }
+  
+  /**
+   * Finds the largest scrypt CPU cost for which a password can be hashed (or
+   * verified) within a target time on this machine.
+   * 
+   * @param targetMillis the target time, in milliseconds
+   * @param r the scrypt memory cost
+   * @param p the scrypt parallelization
+   * @return the scrypt CPU cost
+   */
+  public static int calibrate(long targetMillis, int r, int p) {
+    int n = CALIBRATION_MIN_N;
+    SCryptUtil.scrypt(CALIBRATION_PASSWORD, n, r, p); // warm up
+    
+    for(; n <= Integer.MAX_VALUE / 256 / r; n <<= 1) {
+      long start = System.nanoTime();
+      SCryptUtil.scrypt(CALIBRATION_PASSWORD, n, r, p);
+      long elapsed = (System.nanoTime() - start) / 1000000L;
+      Logger.onDebug(LOG_LABEL, String.format("N = %1$d took %2$d ms.", n, elapsed));
+      if(elapsed * 2L > targetMillis) break; // doubling N doubles the time
+    }
+    
+    Logger.onInfo(LOG_LABEL, String.format("Calibrated scrypt to N = %1$d, r = %2$d, p = %3$d.", n, r, p));
+    return n;
+  }
+  
+  /**
+   * Stops the hasher. Work that has already been accepted is finished.
+   */
+  public void halt() {
+    executor.shutdown();
+  }
+  
+  private <T> T run(Callable<T> task) throws HasherBusyException {
+    final long submitted = System.nanoTime();
+    Future<T> future = null;
+    
+    try {
+      future = executor.submit(() -> {
+        Metrics.record("hasher.wait", System.nanoTime() - submitted);
+        return task.call();
+      });
+    } catch(RejectedExecutionException e) {
+      Metrics.increment("hasher.rejected");
+      throw new HasherBusyException(e);
+    }
+    
+    try {
+      return future.get();
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+      throw new IllegalStateException(e.getCause());
+    } catch(InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new HasherBusyException(e);
+    } finally {
+      Metrics.record("hasher.latency", System.nanoTime() - submitted);
+    }
+  }
+  
+}
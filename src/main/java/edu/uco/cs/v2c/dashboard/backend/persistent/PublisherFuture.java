@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Completes with the first item published by a reactive stream, or with
+ * <code>null</code> if the stream ends without publishing anything. Meant
+ * for the driver's single-result publishers, such as <code>first()</code>
+ * and the results of writes. Streams of several items can be collected
+ * with {@link PublisherFuture#all(Publisher)} instead.
+ * 
+ * @author Caleb L. Power
+ * @param <T> the type of item
+ */
+class PublisherFuture<T> extends CompletableFuture<T> implements Subscriber<T> {
+  
+  private Subscription subscription = null;
+  
+  private PublisherFuture() { }
+  
+  /**
+   * Subscribes to a publisher.
+   * 
+   * @param <T> the type of item
+   * @param publisher the publisher
+   * @return a stage that completes with the first item published
+   */
+  static <T> CompletionStage<T> first(Publisher<T> publisher) {
+    PublisherFuture<T> future = new PublisherFuture<>();
+    publisher.subscribe(future);
+    return future;
+  }
+  
+  /**
+   * Subscribes to a publisher, collecting everything that it publishes.
+   * 
+   * @param <T> the type of item
+   * @param publisher the publisher
+   * @return a stage that completes with every item published, in order
+   */
+  static <T> CompletionStage<List<T>> all(Publisher<T> publisher) {
+    ListFuture<T> future = new ListFuture<>();
+    publisher.subscribe(future);
+    return future;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void onSubscribe(Subscription subscription) {
+    this.subscription = subscription;
+    subscription.request(1L);
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void onNext(T item) {
+    if(complete(item)) subscription.cancel();
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void onError(Throwable cause) {
+    completeExceptionally(cause);
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void onComplete() {
+    complete(null);
+  }
+  
+  private static class ListFuture<T> extends CompletableFuture<List<T>> implements Subscriber<T> {
+    
+    private List<T> items = new ArrayList<>();
+    
+    @Override public void onSubscribe(Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+    
+    @Override public void onNext(T item) {
+      items.add(item);
+    }
+    
+    @Override public void onError(Throwable cause) {
+      completeExceptionally(cause);
+    }
+    
+    @Override public void onComplete() {
+      complete(items);
+    }
+    
+  }
+  
+}
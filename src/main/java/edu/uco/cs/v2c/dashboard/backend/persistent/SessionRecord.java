@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import java.util.UUID;
+
+/**
+ * A session as it's persisted in the database.
+ * 
+ * @author Caleb L. Power
+ */
+public class SessionRecord {
+  
+  private String sessionKey = null;
+  private UUID uid = null;
+  private long expiration = 0L;
+  
+  /**
+   * Instantiates the record.
+   * 
+   * @param sessionKey the session key
+   * @param uid the unique ID of the session's user
+   * @param expiration the time at which the session expires, in milliseconds
+   *        since the epoch
+   */
+  public SessionRecord(String sessionKey, UUID uid, long expiration) {
+    this.sessionKey = sessionKey;
+    this.uid = uid;
+    this.expiration = expiration;
+  }
+  
+  /**
+   * Retrieves the session key.
+   * 
+   * @return the session key
+   */
+  public String getSessionKey() {
+    return sessionKey;
+  }
+  
+  /**
+   * Retrieves the unique ID of the session's user.
+   * 
+   * @return the user's unique ID
+   */
+  public UUID getUID() {
+    return uid;
+  }
+  
+  /**
+   * Retrieves the time at which the session expires.
+   * 
+   * @return the expiration time, in milliseconds since the epoch
+   */
+  public long getExpiration() {
+    return expiration;
+  }
+  
+}
@@ -17,7 +17,8 @@ package edu.uco.cs.v2c.dashboard.backend.persistent;
 
 import java.util.UUID;
 
-import com.lambdaworks.crypto.SCryptUtil;
+import edu.uco.cs.v2c.dashboard.backend.V2CDashboardBackend;
+import edu.uco.cs.v2c.dashboard.backend.log.Logger;
 
 /**
  * Represents some user.
@@ -118,9 +119,10 @@ public class User {
    * 
    * @param password the password associated with the user
    * @return this User
+   * @throws HasherBusyException if the password hasher is at capacity
    */
-  public User setPassword(String password) {
-    return setPasswordHash(SCryptUtil.scrypt(password + PASSWORD_SALT, 16, 16, 16));
+  public User setPassword(String password) throws HasherBusyException {
+    return setPasswordHash(V2CDashboardBackend.getPasswordHasher().hash(password + PASSWORD_SALT));
   }
   
   /**
@@ -128,14 +130,45 @@ public class User {
    * 
    * @param password the provided password
    * @return <code>true</code> iff the password checks out
+   * @throws HasherBusyException if the password hasher is at capacity
    */
-  public boolean verifyPassword(String password) {
+  public boolean verifyPassword(String password) throws HasherBusyException {
     try {
-      return SCryptUtil.check(password + PASSWORD_SALT, pHash);
+      return V2CDashboardBackend.getPasswordHasher().verify(password + PASSWORD_SALT, pHash);
     } catch(IllegalArgumentException e) {
       e.printStackTrace();
       return false;
     }
   }
   
+  /**
+   * Makes a copy of this user that can be modified independently.
+   * 
+   * @return a new User with the same fields
+   */
+  public User copy() {
+    return new User()
+        .setID(uid)
+        .setEmail(email)
+        .setUsername(username)
+        .setPasswordHash(pHash);
+  }
+  
+  /**
+   * Rehashes the password in the background if the saved hash was made with
+   * outdated scrypt parameters. Only call this with a password that has been
+   * verified, and only if the hasher isn't busy will it do anything.
+   * 
+   * @param password the verified password
+   */
+  public void upgradePassword(String password) {
+    PasswordHasher hasher = V2CDashboardBackend.getPasswordHasher();
+    final String oldHash = pHash;
+    if(uid == null || oldHash == null || hasher.isCurrent(oldHash)) return;
+    hasher.hashLater(password + PASSWORD_SALT, newHash -> {
+      if(V2CDashboardBackend.getDatabase().setPasswordHash(uid, oldHash, newHash))
+        Logger.onInfo("USER", String.format("Upgraded password hash for user %1$s.", uid));
+    });
+  }
+  
 }
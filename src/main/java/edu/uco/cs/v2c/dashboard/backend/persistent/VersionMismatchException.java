@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+/**
+ * Thrown when a conditional write is rejected because the document was
+ * changed by someone else after the caller last read it.
+ * 
+ * @author Caleb L. Power
+ */
+public class VersionMismatchException extends Exception {
+  private static final long serialVersionUID = 2183658064926420398L;
+  
+  /**
+   * Instantiates the exception.
+   * 
+   * @param expectedVersion the version that the caller expected
+   */
+  public VersionMismatchException(long expectedVersion) {
+    super(String.format("Document is no longer at version %1$d.", expectedVersion));
+  }
+  
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.junit.Test;
+
+/**
+ * Tests the expiration, eviction, and invalidation guarantees of the
+ * {@link ExpiringCache}.
+ * 
+ * @author Caleb L. Power
+ */
+public class ExpiringCacheTest {
+  
+  /**
+   * Tests that entries are dropped once their time to live has passed.
+   * 
+   * @throws InterruptedException if the test is interrupted
+   */
+  @Test public void testExpiry() throws InterruptedException {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, 50L);
+    cache.put("key", "value");
+    assertEquals("value", cache.get("key"));
+    
+    Thread.sleep(100L);
+    assertNull(cache.get("key"));
+    assertEquals(0, cache.size());
+  }
+  
+  /**
+   * Tests that the least recently used entry is evicted when the cache is full.
+   */
+  @Test public void testEviction() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(2, 60000L);
+    cache.put("a", "1");
+    cache.put("b", "2");
+    cache.get("a"); // so b is the least recently used
+    cache.put("c", "3");
+    
+    assertEquals(2, cache.size());
+    assertEquals("1", cache.get("a"));
+    assertNull(cache.get("b"));
+    assertEquals("3", cache.get("c"));
+  }
+  
+  /**
+   * Tests that a cache of size zero holds nothing.
+   */
+  @Test public void testDisabled() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(0, 60000L);
+    cache.put("key", "value");
+    assertNull(cache.get("key"));
+    assertEquals("value", cache.get("key", k -> "value"));
+    assertEquals(0, cache.size());
+  }
+  
+  /**
+   * Tests that a value is loaded on a miss and served from the cache after.
+   */
+  @Test public void testReadThrough() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60000L);
+    int[] loads = new int[1];
+    assertEquals("value", cache.get("key", k -> { loads[0]++; return "value"; }));
+    assertEquals("value", cache.get("key", k -> { loads[0]++; return "other"; }));
+    assertEquals(1, loads[0]);
+  }
+  
+  /**
+   * Tests that a value loaded while its key was invalidated is returned to
+   * the caller but not kept.
+   */
+  @Test public void testInvalidationDuringLoad() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60000L);
+    assertEquals("stale", cache.get("key", k -> {
+      cache.invalidate(k); // some other node changed the data mid-load
+      return "stale";
+    }));
+    assertNull(cache.get("key"));
+    
+    assertEquals("stale", cache.get("key", k -> {
+      cache.invalidateAll();
+      return "stale";
+    }));
+    assertNull(cache.get("key"));
+  }
+  
+  /**
+   * Tests that an asynchronous load that straddles an invalidation isn't kept.
+   */
+  @Test public void testInvalidationDuringAsyncLoad() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60000L);
+    CompletableFuture<String> load = new CompletableFuture<>();
+    CompletionStage<String> result = cache.getAsync("key", k -> load);
+    cache.invalidate("key");
+    load.complete("stale");
+    
+    assertEquals("stale", result.toCompletableFuture().join());
+    assertNull(cache.get("key"));
+    
+    cache.getAsync("key", k -> CompletableFuture.completedFuture("fresh")).toCompletableFuture().join();
+    assertEquals("fresh", cache.get("key"));
+  }
+  
+  /**
+   * Tests that bulk loads only ask for the keys that are missing.
+   */
+  @Test public void testGetAllAsync() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60000L);
+    cache.put("a", "1");
+    Map<String, String> values = cache.getAllAsync(Arrays.asList("a", "b"), missing -> {
+      assertEquals(Collections.singleton("b"), missing);
+      return CompletableFuture.completedFuture(Collections.singletonMap("b", "2"));
+    }).toCompletableFuture().join();
+    
+    assertEquals("1", values.get("a"));
+    assertEquals("2", values.get("b"));
+    assertEquals("2", cache.get("b"));
+  }
+  
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the per-key token buckets of the {@link RateLimiter}.
+ * 
+ * @author Caleb L. Power
+ */
+public class RateLimiterTest {
+  
+  /**
+   * Tests that a key may use up its burst and is then told how long to wait.
+   */
+  @Test public void testBurst() {
+    RateLimiter limiter = new RateLimiter(3);
+    try {
+      for(int i = 0; i < 3; i++)
+        assertEquals(0L, limiter.tryAcquire("10.0.0.1"));
+      long wait = limiter.tryAcquire("10.0.0.1");
+      assertTrue(wait > 0L && wait <= 20001L); // a token comes back every 20 seconds
+      
+      assertEquals(0L, limiter.tryAcquire("10.0.0.2")); // other keys are unaffected
+    } finally {
+      limiter.halt();
+    }
+  }
+  
+  /**
+   * Tests that a token comes back once the interval has passed.
+   * 
+   * @throws InterruptedException if the test is interrupted
+   */
+  @Test public void testRefill() throws InterruptedException {
+    RateLimiter limiter = new RateLimiter(1200); // a token every 50 ms
+    try {
+      while(limiter.tryAcquire("key") == 0L);
+      Thread.sleep(limiter.tryAcquire("key") + 10L);
+      assertEquals(0L, limiter.tryAcquire("key"));
+    } finally {
+      limiter.halt();
+    }
+  }
+  
+  /**
+   * Tests that a limit that would block everything is refused.
+   */
+  @Test public void testInvalidRate() {
+    assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0));
+  }
+  
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link RevocationList}.
+ * 
+ * @author Caleb L. Power
+ */
+public class RevocationListTest {
+  
+  /**
+   * Tests that revoked tokens are reported as such, and others aren't.
+   */
+  @Test public void testRevoke() {
+    RevocationList revocations = new RevocationList(60000L);
+    String revoked = UUID.randomUUID().toString();
+    revocations.revoke(revoked);
+    
+    assertTrue(revocations.isRevoked(revoked));
+    int falsePositives = 0;
+    for(int i = 0; i < 10000; i++)
+      if(revocations.isRevoked(UUID.randomUUID().toString())) falsePositives++;
+    assertTrue(falsePositives < 5);
+  }
+  
+  /**
+   * Tests that revocations are remembered for at least one token lifetime and
+   * forgotten after two.
+   * 
+   * @throws InterruptedException if the test is interrupted
+   */
+  @Test public void testRotation() throws InterruptedException {
+    RevocationList revocations = new RevocationList(200L);
+    String revoked = UUID.randomUUID().toString();
+    revocations.revoke(revoked);
+    
+    Thread.sleep(250L); // the filter has rotated once
+    assertTrue(revocations.isRevoked(revoked));
+    
+    Thread.sleep(500L); // and then some
+    assertFalse(revocations.isRevoked(revoked));
+  }
+  
+}
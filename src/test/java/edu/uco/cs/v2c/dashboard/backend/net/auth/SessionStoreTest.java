@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uco.cs.v2c.dashboard.backend.persistent.User;
+
+/**
+ * Tests the indexing and eviction of sessions in the {@link SessionStore}.
+ * 
+ * @author Caleb L. Power
+ */
+public class SessionStoreTest {
+  
+  private SessionStore store = null;
+  
+  /**
+   * Sets up a store that holds at most two sessions.
+   */
+  @Before public void setUp() {
+    store = new SessionStore(2);
+  }
+  
+  /**
+   * Stops the store's sweeper.
+   */
+  @After public void tearDown() {
+    store.halt();
+  }
+  
+  /**
+   * Tests that sessions can be found and removed by key and by user.
+   */
+  @Test public void testPutAndRemove() {
+    AuthToken token = token(UUID.randomUUID());
+    store.put(token);
+    assertTrue(store.contains(token.getSessionKey()));
+    assertSame(token, store.get(token.getSessionKey()));
+    
+    assertSame(token, store.removeByUser(token.getUID()));
+    assertFalse(store.contains(token.getSessionKey()));
+    assertNull(store.remove(token.getSessionKey()));
+    assertEquals(0, store.size());
+  }
+  
+  /**
+   * Tests that a user's new session replaces their old one.
+   */
+  @Test public void testReplace() {
+    UUID uid = UUID.randomUUID();
+    AuthToken first = token(uid);
+    AuthToken second = token(uid);
+    store.put(first);
+    store.put(second);
+    
+    assertEquals(1, store.size());
+    assertNull(store.get(first.getSessionKey()));
+    assertSame(second, store.removeByUser(uid));
+  }
+  
+  /**
+   * Tests that the session that's due to expire first is evicted when there
+   * are too many.
+   */
+  @Test public void testEviction() {
+    AuthToken oldest = token(UUID.randomUUID());
+    AuthToken middle = token(UUID.randomUUID());
+    AuthToken newest = token(UUID.randomUUID());
+    store.put(oldest);
+    store.put(middle);
+    store.put(newest);
+    
+    assertEquals(2, store.size());
+    assertFalse(store.contains(oldest.getSessionKey()));
+    assertTrue(store.contains(middle.getSessionKey()));
+    assertTrue(store.contains(newest.getSessionKey()));
+    assertNull(store.removeByUser(oldest.getUID()));
+  }
+  
+  /**
+   * Tests that a store that can't hold anything is refused.
+   */
+  @Test public void testInvalidCap() {
+    assertThrows(IllegalArgumentException.class, () -> new SessionStore(0));
+  }
+  
+  private static AuthToken token(UUID uid) {
+    return new AuthToken()
+        .setUser(new User().setID(uid))
+        .setSessionKey(UUID.randomUUID().toString());
+  }
+  
+}
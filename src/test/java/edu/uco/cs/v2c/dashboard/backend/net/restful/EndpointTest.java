@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.net.restful;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the handling of conditional request headers.
+ * 
+ * @author Caleb L. Power
+ */
+public class EndpointTest {
+  
+  /**
+   * Tests that tags are matched whether they're weak, strong, or in a list.
+   */
+  @Test public void testMatchesETag() {
+    assertTrue(Endpoint.matchesETag("\"3.7\"", "\"3.7\""));
+    assertTrue(Endpoint.matchesETag("W/\"3.7\"", "\"3.7\""));
+    assertTrue(Endpoint.matchesETag("\"1.1\", W/\"3.7\"", "\"3.7\""));
+    assertTrue(Endpoint.matchesETag("*", "\"3.7\""));
+    assertFalse(Endpoint.matchesETag("\"3.8\"", "\"3.7\""));
+    assertFalse(Endpoint.matchesETag("3.7", "\"3.7\"")); // tags are quoted
+    assertFalse(Endpoint.matchesETag(null, "\"3.7\""));
+    assertFalse(Endpoint.matchesETag("*", null));
+  }
+  
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+/**
+ * Tests how the {@link ChangeStreamWatcher} relays changes and keeps track of
+ * its resume token, without a database.
+ * 
+ * @author Caleb L. Power
+ */
+public class ChangeStreamWatcherTest {
+  
+  private File tokenFile = null;
+  private List<String> events = null;
+  private ChangeListener listener = null;
+  
+  /**
+   * Sets up a scratch resume token file and a listener that records events.
+   * 
+   * @throws IOException if the file can't be created
+   */
+  @Before public void setUp() throws IOException {
+    tokenFile = File.createTempFile("resume-token", ".json");
+    tokenFile.delete();
+    events = new ArrayList<>();
+    listener = new ChangeListener() {
+      @Override public void onGlobalConfigChange() {
+        events.add("global");
+      }
+      
+      @Override public void onUserConfigChange(UUID uid) {
+        events.add("config " + uid);
+      }
+      
+      @Override public void onUserProfileChange(UUID uid) {
+        events.add("profile " + uid);
+      }
+      
+      @Override public void onUnknownChange() {
+        events.add("unknown");
+      }
+    };
+  }
+  
+  /**
+   * Removes the scratch resume token file.
+   */
+  @After public void tearDown() {
+    tokenFile.delete();
+    new File(tokenFile.getPath() + ".tmp").delete();
+  }
+  
+  /**
+   * Tests that changes to each kind of document are relayed as such.
+   */
+  @Test public void testDispatch() {
+    ChangeStreamWatcher watcher = watcher();
+    UUID uid = UUID.randomUUID();
+    
+    watcher.dispatch(change(OperationType.UPDATE, "config", new Document("global", true)));
+    watcher.dispatch(change(OperationType.INSERT, "config", new Document("uid", uid.toString())));
+    watcher.dispatch(change(OperationType.REPLACE, "user", new Document("uid", uid.toString())));
+    watcher.dispatch(change(OperationType.UPDATE, "config", null)); // deleted before it was looked up
+    watcher.dispatch(change(OperationType.DELETE, "user", null));
+    
+    assertEquals(List.of("global", "config " + uid, "profile " + uid, "unknown", "unknown"), events);
+  }
+  
+  /**
+   * Tests that an invalidated stream forgets its resume token.
+   */
+  @Test public void testInvalidate() {
+    ChangeStreamWatcher watcher = watcher();
+    watcher.advance(token("a"), true);
+    
+    assertThrows(MongoException.class, () -> watcher.dispatch(change(OperationType.INVALIDATE, "config", null)));
+    assertNull(watcher.getResumeToken());
+    assertNull(watcher.loadResumeToken());
+  }
+  
+  /**
+   * Tests that a resume token saved by one watcher is picked up by the next,
+   * as it would be after a restart.
+   */
+  @Test public void testResumeAfterRestart() {
+    ChangeStreamWatcher watcher = watcher();
+    assertNull(watcher.loadResumeToken());
+    watcher.advance(token("a"), true);
+    watcher.halt();
+    
+    assertEquals(token("a"), watcher().loadResumeToken());
+  }
+  
+  /**
+   * Tests that a token that moved without any change being dispatched isn't
+   * written out every time, but is saved once a change comes along or the
+   * watcher is halted.
+   * 
+   * @throws IOException if the token file can't be read
+   */
+  @Test public void testTokenSavesAreThrottled() throws IOException {
+    ChangeStreamWatcher watcher = watcher();
+    watcher.advance(token("a"), false); // the first token is always saved
+    assertEquals(token("a"), watcher.loadResumeToken());
+    long modified = tokenFile.lastModified();
+    
+    watcher.advance(token("b"), false); // just an idle poll
+    assertEquals(token("b"), watcher.getResumeToken());
+    assertEquals(token("a"), watcher.loadResumeToken());
+    assertEquals(modified, tokenFile.lastModified());
+    
+    watcher.advance(token("c"), true);
+    assertEquals(token("c"), watcher.loadResumeToken());
+    
+    watcher.advance(token("d"), false);
+    watcher.halt();
+    assertEquals(token("d"), watcher.loadResumeToken());
+  }
+  
+  /**
+   * Tests that an unreadable or empty token file means starting over.
+   * 
+   * @throws IOException if the token file can't be written
+   */
+  @Test public void testBadTokenFile() throws IOException {
+    Files.write(tokenFile.toPath(), "".getBytes(StandardCharsets.UTF_8));
+    assertNull(watcher().loadResumeToken());
+    
+    Files.write(tokenFile.toPath(), "not json".getBytes(StandardCharsets.UTF_8));
+    assertNull(watcher().loadResumeToken());
+  }
+  
+  private ChangeStreamWatcher watcher() {
+    return new ChangeStreamWatcher(null, "config", "user", listener, tokenFile);
+  }
+  
+  private static BsonDocument token(String data) {
+    return new BsonDocument("_data", new BsonString(data));
+  }
+  
+  private static ChangeStreamDocument<Document> change(OperationType type, String collection, Document document) {
+    BsonDocument namespace = new BsonDocument("db", new BsonString("v2cDashboard"))
+        .append("coll", new BsonString(collection));
+    return new ChangeStreamDocument<>(type, token("x"), namespace, null, document, null, null, null, null, null);
+  }
+  
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Tests the tags that configs are identified by in entity tags.
+ * 
+ * @author Caleb L. Power
+ */
+public class ConfigTest {
+  
+  /**
+   * Tests that versioned configs are tagged with their version.
+   */
+  @Test public void testVersionTag() {
+    Config config = new Config(new JSONObject(), 42L);
+    assertEquals("42", config.getTag());
+    assertEquals(Long.valueOf(42L), Config.parseTag(config.getTag()));
+  }
+  
+  /**
+   * Tests that unversioned configs are tagged by their contents.
+   */
+  @Test public void testHashTag() {
+    Config config = new Config(new JSONObject().put("a", 1), 0L);
+    assertTrue(config.getTag().startsWith("h"));
+    assertEquals(config.getTag(), new Config(new JSONObject().put("a", 1), 0L).getTag());
+    assertNotEquals(config.getTag(), new Config(new JSONObject().put("a", 2), 0L).getTag());
+    assertEquals(Long.valueOf(0L), Config.parseTag(config.getTag()));
+  }
+  
+  /**
+   * Tests that tags which can't have been issued aren't recognized.
+   */
+  @Test public void testUnrecognizedTags() {
+    assertNull(Config.parseTag(null));
+    assertNull(Config.parseTag(""));
+    assertNull(Config.parseTag("0"));
+    assertNull(Config.parseTag("-3"));
+    assertNull(Config.parseTag("abc"));
+  }
+  
+}
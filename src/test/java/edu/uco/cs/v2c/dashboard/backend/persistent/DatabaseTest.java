@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.mongodb.MongoClientSettings;
+
+/**
+ * Tests the translation of merge patches into config updates.
+ * 
+ * @author Caleb L. Power
+ */
+public class DatabaseTest {
+  
+  /**
+   * Tests that values are set and nulls are unset at their field paths.
+   */
+  @Test public void testToUpdates() {
+    List<Bson> updates = new ArrayList<>();
+    List<Bson> conditions = new ArrayList<>();
+    assertTrue(Database.toUpdates("config",
+        new JSONObject("{\"name\":\"dashboard\",\"gone\":null,\"a\":{\"b\":1}}"), updates, conditions));
+    
+    BsonDocument combined = render(updates);
+    assertEquals("dashboard", combined.getDocument("$set").getString("config.name").getValue());
+    assertEquals(1, combined.getDocument("$set").getInt32("config.a.b").getValue());
+    assertTrue(combined.getDocument("$unset").containsKey("config.gone"));
+  }
+  
+  /**
+   * Tests that the config is always required to be a document, so that
+   * configs stored as strings fall back to being replaced.
+   */
+  @Test public void testConfigMustBeDocument() {
+    List<Bson> updates = new ArrayList<>();
+    List<Bson> conditions = new ArrayList<>();
+    assertTrue(Database.toUpdates("config", new JSONObject("{\"x\":null}"), updates, conditions));
+    assertEquals(1, conditions.size());
+    assertEquals(3, render(conditions.get(0)).getDocument("config").getInt32("$type").getValue());
+  }
+  
+  /**
+   * Tests that keys are only removed from objects that are required to be
+   * objects already, and that objects that only have keys set aren't.
+   */
+  @Test public void testUnsetRequiresObjectParent() {
+    List<Bson> updates = new ArrayList<>();
+    List<Bson> conditions = new ArrayList<>();
+    assertTrue(Database.toUpdates("config",
+        new JSONObject("{\"a\":{\"b\":null},\"c\":{\"d\":1}}"), updates, conditions));
+    
+    BsonDocument combined = new BsonDocument();
+    for(Bson condition : conditions) combined.putAll(render(condition));
+    assertEquals(2, combined.size());
+    assertEquals(3, combined.getDocument("config.a").getInt32("$type").getValue());
+    assertEquals(3, combined.getDocument("config").getInt32("$type").getValue());
+  }
+  
+  /**
+   * Tests that patches that can't be expressed as field updates are rejected.
+   */
+  @Test public void testUntranslatablePatches() {
+    assertFalse(Database.toUpdates("config", new JSONObject("{\"a.b\":1}"), new ArrayList<>(), new ArrayList<>()));
+    assertFalse(Database.toUpdates("config", new JSONObject("{\"$a\":1}"), new ArrayList<>(), new ArrayList<>()));
+    assertFalse(Database.toUpdates("config", new JSONObject("{\"\":1}"), new ArrayList<>(), new ArrayList<>()));
+    assertFalse(Database.toUpdates("config", new JSONObject("{\"a\":{}}"), new ArrayList<>(), new ArrayList<>()));
+  }
+  
+  /**
+   * Tests the merge patch cases from RFC 7396 that the field updates can't
+   * handle on their own.
+   */
+  @Test public void testMergePatch() {
+    assertTrue(Database.mergePatch(new JSONObject("{\"a\":\"b\"}"), new JSONObject("{\"a\":null}")).similar(
+        new JSONObject()));
+    assertTrue(Database.mergePatch(new JSONObject("{\"a\":\"c\"}"), new JSONObject("{\"a\":{\"b\":null}}")).similar(
+        new JSONObject("{\"a\":{}}")));
+    assertTrue(Database.mergePatch(new JSONObject(), new JSONObject("{\"a\":{\"b\":null}}")).similar(
+        new JSONObject("{\"a\":{}}")));
+    assertTrue(Database.mergePatch(new JSONObject("{\"a\":{\"b\":\"c\",\"d\":1}}"), new JSONObject("{\"a\":{\"b\":\"e\"}}")).similar(
+        new JSONObject("{\"a\":{\"b\":\"e\",\"d\":1}}")));
+  }
+  
+  private static BsonDocument render(List<Bson> updates) {
+    BsonDocument combined = new BsonDocument();
+    for(Bson update : updates)
+      render(update).forEach((operator, fields) -> {
+        if(combined.containsKey(operator)) combined.getDocument(operator).putAll(fields.asDocument());
+        else combined.put(operator, fields.asDocument().clone());
+      });
+    return combined;
+  }
+  
+  private static BsonDocument render(Bson bson) {
+    return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+  }
+  
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020 Caleb L. Power, Everistus Akpabio, Rashed Alrashed,
+ * Nicholas Clemmons, Jonathan Craig, James Cole Riggall, and Glen Mathew.
+ * All rights reserved. Original code copyright (c) 2020 Axonibyte Innovations,
+ * LLC. All rights reserved. Licensed under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uco.cs.v2c.dashboard.backend.persistent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Tests the conversion of configs between JSON and BSON.
+ * 
+ * @author Caleb L. Power
+ */
+public class DocumentConverterTest {
+  
+  /**
+   * Tests that nested objects, arrays, and nulls survive a round trip.
+   */
+  @Test public void testRoundTrip() {
+    JSONObject json = new JSONObject()
+        .put("name", "dashboard")
+        .put("count", 3)
+        .put("enabled", true)
+        .put("missing", JSONObject.NULL)
+        .put("nested", new JSONObject().put("list", new JSONArray().put(1).put("two").put(new JSONObject().put("x", 1.5))));
+    
+    Document document = DocumentConverter.toDocument(json);
+    assertEquals("dashboard", document.getString("name"));
+    assertTrue(document.containsKey("missing"));
+    assertNull(document.get("missing"));
+    List<?> list = (List<?>)((Document)document.get("nested")).get("list");
+    assertEquals(3, list.size());
+    assertEquals(1.5, ((Document)list.get(2)).get("x"));
+    
+    assertTrue(json.similar(DocumentConverter.toJSONObject(document)));
+  }
+  
+  /**
+   * Tests that numbers too big for a long or double keep their precision.
+   */
+  @Test public void testBigNumbers() {
+    BigInteger big = new BigInteger("123456789012345678901234567890");
+    assertEquals(new Decimal128(new BigDecimal(big)), DocumentConverter.toBSONValue(big));
+    assertEquals(new BigDecimal("0.1"), DocumentConverter.toJSONValue(new Decimal128(new BigDecimal("0.1"))));
+  }
+  
+  /**
+   * Tests that BSON-only types are converted into something JSON can hold.
+   */
+  @Test public void testObjectId() {
+    ObjectId id = new ObjectId();
+    assertEquals(id.toHexString(), DocumentConverter.toJSONValue(id));
+    assertEquals(JSONObject.NULL, DocumentConverter.toJSONValue(null));
+  }
+  
+  /**
+   * Tests that keys which aren't valid field names are caught wherever they are.
+   */
+  @Test public void testIsStorable() {
+    assertTrue(DocumentConverter.isStorable(new JSONObject().put("a", new JSONObject().put("b", 1))));
+    assertTrue(DocumentConverter.isStorable("scalar"));
+    assertFalse(DocumentConverter.isStorable(new JSONObject().put("a.b", 1)));
+    assertFalse(DocumentConverter.isStorable(new JSONObject().put("$a", 1)));
+    assertTrue(DocumentConverter.isStorable(new JSONObject().put("a$", 1)));
+    assertFalse(DocumentConverter.isStorable(new JSONObject().put("a", new JSONObject().put("b.c", 1))));
+    assertFalse(DocumentConverter.isStorable(new JSONArray().put(new JSONObject().put("$x", 1))));
+  }
+  
+}